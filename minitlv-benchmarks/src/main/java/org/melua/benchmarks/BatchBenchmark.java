@@ -0,0 +1,95 @@
+package org.melua.benchmarks;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.melua.MiniTLV;
+import org.melua.api.RecordMap;
+import org.melua.api.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+	@Param({"1000", "100000"})
+	private int messages;
+
+	@Param({"16"})
+	private int records;
+
+	@Param({"16", "255"})
+	private int valueSize;
+
+	private List<ByteBuffer> batch;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.batch = new ArrayList<>(messages);
+		for (int m = 0; m < messages; m++) {
+			Serializer writer = MiniTLV.pooledWriter();
+			for (int i = 0; i < records; i++) {
+				writer.write(Fixtures.value(valueSize, m + i), Fixtures.type(1, i));
+			}
+			this.batch.add(ByteBuffer.wrap(writer.serialize()));
+		}
+	}
+
+	@Benchmark
+	public void parseSequential(Blackhole blackhole) throws IOException {
+		for (ByteBuffer message : batch) {
+			blackhole.consume(MiniTLV.getView(message).parseRecords());
+		}
+	}
+
+	@Benchmark
+	public List<RecordMap> parseAll() throws IOException {
+		return MiniTLV.parseAll(batch);
+	}
+
+	@Benchmark
+	public long parseEach() throws IOException {
+		/*
+		 * Blackhole is not shared with the workers
+		 */
+		LongAdder sizes = new LongAdder();
+		MiniTLV.parseEach(batch, (i, map) -> sizes.add(map.size()));
+		return sizes.sum();
+	}
+
+}
@@ -0,0 +1,77 @@
+package org.melua.benchmarks;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+import org.melua.MiniTLV;
+import org.melua.StandardCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+	private static final double MIN_GAIN = 0.1;
+
+	@Param({"255", "65536", "1048576"})
+	private int valueSize;
+
+	@Param({"STORED", "DEFLATE", "RAW_DEFLATE", "LZ4"})
+	private StandardCodec codec;
+
+	private byte[] data;
+	private byte[] compressed;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.data = MiniTLV.getWriter().write(Fixtures.value(valueSize, 0), (byte) 0x01).serialize();
+		this.compressed = MiniTLV.getCompacter().add(data).compress(codec);
+	}
+
+	@Benchmark
+	public byte[] compress() throws IOException {
+		return MiniTLV.getCompacter().add(data).compress(codec);
+	}
+
+	@Benchmark
+	public byte[] compressAdaptive() throws IOException {
+		return MiniTLV.getCompacter().add(data).compressAdaptive(codec, MIN_GAIN);
+	}
+
+	@Benchmark
+	public byte[] decompress() throws IOException, DataFormatException {
+		return MiniTLV.getCompacter().add(compressed).decompress();
+	}
+
+}
@@ -0,0 +1,85 @@
+package org.melua.benchmarks;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+import org.melua.Level;
+import org.melua.MiniTLV;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressorBenchmark {
+
+	private static final int BUFFER_SIZE = 512;
+	private static final int STREAM_BUFFER_SIZE = 8192;
+
+	@Param({"1", "255", "65536", "1048576"})
+	private int valueSize;
+
+	@Param({"BEST_SPEED", "BALANCED", "BEST_COMPRESSION"})
+	private Level level;
+
+	private byte[] data;
+	private byte[] compressed;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.data = MiniTLV.getWriter().write(Fixtures.value(valueSize, 0), (byte) 0x01).serialize();
+		this.compressed = MiniTLV.getCompacter(level).add(data).deflate(BUFFER_SIZE);
+	}
+
+	@Benchmark
+	public byte[] deflate() throws IOException {
+		return MiniTLV.getCompacter(level).add(data).deflate(BUFFER_SIZE);
+	}
+
+	@Benchmark
+	public byte[] inflate() throws IOException, DataFormatException {
+		return MiniTLV.getCompacter(level).add(compressed).inflate(BUFFER_SIZE);
+	}
+
+	@Benchmark
+	public long deflateStream() throws IOException {
+		return MiniTLV.getCompacter(level).deflate(new ByteArrayInputStream(data), new ByteArrayOutputStream(), STREAM_BUFFER_SIZE);
+	}
+
+	@Benchmark
+	public long inflateStream() throws IOException, DataFormatException {
+		return MiniTLV.getCompacter(level).inflate(new ByteArrayInputStream(compressed), new ByteArrayOutputStream(), STREAM_BUFFER_SIZE);
+	}
+
+}
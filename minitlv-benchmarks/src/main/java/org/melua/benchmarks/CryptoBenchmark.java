@@ -0,0 +1,117 @@
+package org.melua.benchmarks;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import org.melua.Algorithm;
+import org.melua.MiniTLV;
+import org.melua.api.CryptoEngine;
+import org.melua.api.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoBenchmark {
+
+	private static final String SECRET = "benchmark-secret";
+	private static final int CHUNK_SIZE = 65536;
+
+	@Param({"1", "255", "65536", "1048576"})
+	private int valueSize;
+
+	@Param({"AES128", "AES192", "AES256"})
+	private Algorithm algorithm;
+
+	private byte[] data;
+	private byte[] encrypted;
+	private CryptoEngine engine;
+	private Session session;
+	private byte[] sessionEncrypted;
+	private byte[] streamEncrypted;
+
+	@Setup
+	public void setUp() throws IOException, GeneralSecurityException {
+		this.data = MiniTLV.getWriter().write(Fixtures.value(valueSize, 0), (byte) 0x01).serialize();
+		this.encrypted = MiniTLV.getCipher(algorithm).add(data).encrypt(SECRET);
+		this.engine = MiniTLV.getCryptoEngine(algorithm);
+		this.session = MiniTLV.getSession(algorithm, SECRET);
+		this.sessionEncrypted = session.encrypt(data);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		MiniTLV.getCipher(algorithm).encrypt(new ByteArrayInputStream(data), output, SECRET, CHUNK_SIZE);
+		this.streamEncrypted = output.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] encrypt() throws IOException, GeneralSecurityException {
+		return MiniTLV.getCipher(algorithm).add(data).encrypt(SECRET);
+	}
+
+	@Benchmark
+	public byte[] decrypt() throws IOException, GeneralSecurityException {
+		return MiniTLV.getCipher(algorithm).add(encrypted).decrypt(SECRET);
+	}
+
+	@Benchmark
+	public byte[] engineEncrypt() throws GeneralSecurityException {
+		return engine.encrypt(data, SECRET);
+	}
+
+	@Benchmark
+	public byte[] engineDecrypt() throws GeneralSecurityException {
+		return engine.decrypt(encrypted, SECRET);
+	}
+
+	@Benchmark
+	public byte[] sessionEncrypt() throws GeneralSecurityException {
+		return session.encrypt(data);
+	}
+
+	@Benchmark
+	public byte[] sessionDecrypt() throws GeneralSecurityException {
+		return session.decrypt(sessionEncrypted);
+	}
+
+	@Benchmark
+	public long streamEncrypt() throws IOException, GeneralSecurityException {
+		return MiniTLV.getCipher(algorithm).encrypt(new ByteArrayInputStream(data), new ByteArrayOutputStream(), SECRET, CHUNK_SIZE);
+	}
+
+	@Benchmark
+	public long streamDecrypt() throws IOException {
+		return MiniTLV.getCipher(algorithm).decrypt(new ByteArrayInputStream(streamEncrypted), new ByteArrayOutputStream(), SECRET);
+	}
+
+}
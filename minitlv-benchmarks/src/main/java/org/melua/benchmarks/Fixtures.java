@@ -0,0 +1,66 @@
+package org.melua.benchmarks;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Deterministic values and types
+ * shared by the benchmarks
+ *
+ */
+final class Fixtures {
+
+	private static final byte[] ALPHABET = "abcdefghijklmnopqrstuvwxyz 0123456789".getBytes(StandardCharsets.UTF_8);
+
+	private Fixtures() {
+	}
+
+	/**
+	 * Create a value made of a small alphabet,
+	 * so that it remains compressible.
+	 * @param size in bytes
+	 * @param seed of the generator
+	 * @return value
+	 */
+	static byte[] value(int size, long seed) {
+		Random random = new Random(seed);
+		byte[] value = new byte[size];
+		for (int i = 0; i < size; i++) {
+			value[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+		}
+		return value;
+	}
+
+	/**
+	 * Create a distinct 1, 2 or 4-bytes type for the given record,
+	 * never starting with the reserved 0x00 byte.
+	 * @param width of the type
+	 * @param record index
+	 * @return type
+	 */
+	static byte[] type(int width, int record) {
+		byte[] type = new byte[width];
+		for (int i = 0; i < width; i++) {
+			type[i] = 0x01;
+		}
+		type[width - 1] = (byte) (record + 1);
+		return type;
+	}
+
+}
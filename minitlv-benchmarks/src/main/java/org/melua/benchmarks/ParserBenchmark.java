@@ -0,0 +1,116 @@
+package org.melua.benchmarks;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.melua.MiniTLV;
+import org.melua.api.Parser;
+import org.melua.api.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+	@Param({"1", "16"})
+	private int records;
+
+	@Param({"1", "255", "65536", "1048576"})
+	private int valueSize;
+
+	@Param({"1", "2", "4"})
+	private int typeWidth;
+
+	private byte[] tlv;
+	private byte[][] types;
+	private ByteBuffer direct;
+
+	/*
+	 * Last written type, so that a lookup scans every record
+	 */
+	private byte[] lastType;
+
+	@Setup
+	public void setUp() throws IOException {
+		Serializer writer = MiniTLV.getWriter();
+		this.types = new byte[records][];
+		for (int i = 0; i < records; i++) {
+			this.types[i] = Fixtures.type(typeWidth, i);
+			writer.write(Fixtures.value(valueSize, i), types[i]);
+		}
+		this.tlv = writer.serialize();
+		this.direct = ByteBuffer.allocateDirect(tlv.length);
+		this.direct.put(tlv).flip();
+		this.lastType = Fixtures.type(typeWidth, records - 1);
+	}
+
+	@Benchmark
+	public byte[] parseType() throws IOException {
+		return MiniTLV.getReader().read(tlv).parse(lastType);
+	}
+
+	@Benchmark
+	public Map<Integer, byte[]> parseAll() throws IOException {
+		return MiniTLV.getReader().read(tlv).parse();
+	}
+
+	@Benchmark
+	public void parseRecords(Blackhole blackhole) throws IOException {
+		MiniTLV.getReader().read(tlv).parseRecords().forEach((type, value) -> blackhole.consume(value));
+	}
+
+	@Benchmark
+	public ByteBuffer sliceType() throws IOException {
+		return MiniTLV.getView(direct).slice(lastType);
+	}
+
+	@Benchmark
+	public void parseEachType(Blackhole blackhole) throws IOException {
+		Parser reader = MiniTLV.getReader().read(tlv);
+		for (byte[] type : types) {
+			blackhole.consume(reader.parse(type));
+		}
+	}
+
+	@Benchmark
+	public void parseEachTypeIndexed(Blackhole blackhole) throws IOException {
+		Parser reader = MiniTLV.getReader().read(tlv).index();
+		for (byte[] type : types) {
+			blackhole.consume(reader.parse(type));
+		}
+	}
+
+}
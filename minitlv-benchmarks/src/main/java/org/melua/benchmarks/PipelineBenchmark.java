@@ -0,0 +1,92 @@
+package org.melua.benchmarks;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+import org.melua.Algorithm;
+import org.melua.Level;
+import org.melua.MiniTLV;
+import org.melua.api.Parser;
+import org.melua.api.Pipeline;
+import org.melua.api.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+	private static final String SECRET = "benchmark-secret";
+
+	@Param({"255", "65536", "1048576"})
+	private int valueSize;
+
+	private Serializer writer;
+	private Pipeline pipeline;
+	private byte[] staged;
+	private byte[] piped;
+
+	@Setup
+	public void setUp() throws IOException, GeneralSecurityException {
+		this.writer = MiniTLV.getWriter().write(Fixtures.value(valueSize, 0), (byte) 0x01);
+		this.pipeline = MiniTLV.pipeline().compress(Level.BALANCED).encrypt(Algorithm.AES128, SECRET);
+		this.staged = stagedWrite();
+		this.piped = pipeline.write(writer);
+	}
+
+	@Benchmark
+	public byte[] stagedWrite() throws IOException, GeneralSecurityException {
+		byte[] tlv = writer.serialize();
+		byte[] compressed = MiniTLV.getCompacter(Level.BALANCED).add(tlv).deflate(8192);
+		return MiniTLV.getCipher(Algorithm.AES128).add(compressed).encrypt(SECRET);
+	}
+
+	@Benchmark
+	public byte[] pipelineWrite() throws IOException {
+		return pipeline.write(writer);
+	}
+
+	@Benchmark
+	public Parser stagedRead() throws IOException, GeneralSecurityException, DataFormatException {
+		byte[] compressed = MiniTLV.getCipher(Algorithm.AES128).add(staged).decrypt(SECRET);
+		byte[] tlv = MiniTLV.getCompacter().add(compressed).inflate(8192);
+		return MiniTLV.getReader().read(tlv);
+	}
+
+	@Benchmark
+	public Parser pipelineRead() throws IOException {
+		return pipeline.read(piped, MiniTLV.getReader());
+	}
+
+}
@@ -0,0 +1,99 @@
+package org.melua.benchmarks;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.melua.MiniTLV;
+import org.melua.api.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+	private static final int HEADER_MAXSIZE = 12;
+
+	@Param({"1", "16"})
+	private int records;
+
+	@Param({"1", "255", "65536", "1048576"})
+	private int valueSize;
+
+	@Param({"1", "2", "4"})
+	private int typeWidth;
+
+	private byte[][] values;
+	private byte[][] types;
+	private ByteBuffer target;
+
+	@Setup
+	public void setUp() {
+		this.values = new byte[records][];
+		this.types = new byte[records][];
+		for (int i = 0; i < records; i++) {
+			this.values[i] = Fixtures.value(valueSize, i);
+			this.types[i] = Fixtures.type(typeWidth, i);
+		}
+		this.target = ByteBuffer.allocateDirect(records * (valueSize + HEADER_MAXSIZE));
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		Serializer writer = MiniTLV.getWriter();
+		for (int i = 0; i < records; i++) {
+			writer.write(values[i], types[i]);
+		}
+		return writer.serialize();
+	}
+
+	@Benchmark
+	public byte[] serializePooled() throws IOException {
+		Serializer writer = MiniTLV.pooledWriter();
+		for (int i = 0; i < records; i++) {
+			writer.write(values[i], types[i]);
+		}
+		return writer.serialize();
+	}
+
+	@Benchmark
+	public int serializeTo() {
+		Serializer writer = MiniTLV.getWriter();
+		for (int i = 0; i < records; i++) {
+			writer.write(values[i], types[i]);
+		}
+		target.clear();
+		return writer.serializeTo(target);
+	}
+
+}
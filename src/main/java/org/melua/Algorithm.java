@@ -31,4 +31,13 @@ public enum Algorithm {
 	int getKeyLength() {
 		return this.keyLength;
 	}
+	
+	static boolean isKeyLength(int keyLength) {
+		for (Algorithm algo : values()) {
+			if (algo.keyLength == keyLength) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -20,49 +20,65 @@ import static org.melua.MiniTLV.BYTE_SIZE;
 import static org.melua.MiniTLV.INT_SIZE;
 import static org.melua.MiniTLV.SHORT_SIZE;
 
-import java.nio.ByteBuffer;
-
 import org.melua.api.Converter;
 
 /**
  * A simple implementation of Converter
- * which uses {@link java.nio.ByteBuffer ByteBuffer}
+ * which uses shift arithmetic in {@link java.nio.ByteOrder#BIG_ENDIAN BIG_ENDIAN} order,
+ * without intermediate buffer
  *
  */
 public class DefaultConverter implements Converter {
 
 	protected DefaultConverter() {
 	}
+	
+	/**
+	 * Prevent bad length
+	 * @param len to check
+	 */
+	private static void checkLength(int len) {
+		if (len != BYTE_SIZE && len != SHORT_SIZE && len != INT_SIZE) {
+			throw new IllegalArgumentException();
+		}
+	}
 
 	@Override
 	public int convertToInt(byte[] bytes) {
-		ByteBuffer buffer = ByteBuffer.allocate(INT_SIZE);
-		switch (bytes.length) {
-		default:
-			throw new IllegalArgumentException();
-		case BYTE_SIZE:
-			buffer.put((byte) 0x00);
-		case SHORT_SIZE:
-			buffer.putShort((short) 0x0000);
-		case INT_SIZE:
-			buffer.put(bytes);
-			buffer.flip();
-		}
-		return buffer.getInt();
+		return readInt(bytes, 0, bytes.length);
 	}
 
 	@Override
 	public byte[] convertToBytes(short value) {
-		ByteBuffer buffer = ByteBuffer.allocate(SHORT_SIZE);
-		buffer.putShort(value);
-		return buffer.array();
+		byte[] bytes = new byte[SHORT_SIZE];
+		writeInt(bytes, 0, value, SHORT_SIZE);
+		return bytes;
 	}
 
 	@Override
 	public byte[] convertToBytes(int value) {
-		ByteBuffer buffer = ByteBuffer.allocate(INT_SIZE);
-		buffer.putInt(value);
-		return buffer.array();
+		byte[] bytes = new byte[INT_SIZE];
+		writeInt(bytes, 0, value, INT_SIZE);
+		return bytes;
+	}
+	
+	@Override
+	public int readInt(byte[] src, int off, int len) {
+		checkLength(len);
+		int result = 0;
+		for (int i = off; i < off + len; i++) {
+			result = result << Byte.SIZE | src[i] & 0xff;
+		}
+		return result;
+	}
+	
+	@Override
+	public void writeInt(byte[] dst, int off, int value, int len) {
+		checkLength(len);
+		for (int i = off + len - 1; i >= off; i--) {
+			dst[i] = (byte) value;
+			value >>>= Byte.SIZE;
+		}
 	}
 
 }
@@ -31,4 +31,18 @@ public enum Level {
 	int getValue() {
 		return this.value;
 	}
+	
+	/**
+	 * Pick a level for the given payload size:
+	 * small payloads afford the best compression,
+	 * large ones are compressed at the best speed.
+	 * @param size of the payload in bytes
+	 * @return level
+	 */
+	public static Level forSize(long size) {
+		if (size <= 65_536) {
+			return BEST_COMPRESSION;
+		}
+		return size <= 1_048_576 ? BALANCED : BEST_SPEED;
+	}
 }
@@ -16,16 +16,59 @@ package org.melua;
  * limitations under the License.
  */
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import org.melua.api.Codec;
 import org.melua.api.Compressor;
 import org.melua.api.Converter;
 import org.melua.api.Crypto;
+import org.melua.api.CryptoEngine;
+import org.melua.api.IntObjConsumer;
+import org.melua.api.Journal;
+import org.melua.api.MappedFile;
 import org.melua.api.Parser;
+import org.melua.api.RecordMap;
+import org.melua.api.Pipeline;
 import org.melua.api.Serializer;
+import org.melua.api.Session;
+import org.melua.api.StreamReader;
+import org.melua.api.StreamWriter;
+import org.melua.api.View;
 
 public class MiniTLV {
 	
 	public static final byte EXTENTED_BYTES = 0x00;
 	
+	/**
+	 * Reserved type wrapping a compressed value:
+	 * the inner type, as 1, 2 or 4 bytes with its extra {@link #EXTENTED_BYTES},
+	 * then the codec identifier and the compressed value.
+	 * Writing it as a type is refused.
+	 */
+	public static final int COMPRESSED_TYPE = 0xffffffff;
+	
+	/**
+	 * Reserved type wrapping an encrypted value:
+	 * the inner type, as 1, 2 or 4 bytes with its extra {@link #EXTENTED_BYTES},
+	 * then the {@link org.melua.api.Session Session} encryption of the inner type and the value.
+	 * Writing it as a type is refused.
+	 */
+	public static final int ENCRYPTED_TYPE = 0xfffffffe;
+	
 	protected static final int BYTE_SIZE = 1;
 	protected static final int SHORT_SIZE = 2;
 	protected static final int INT_SIZE = 4;
@@ -36,6 +79,16 @@ public class MiniTLV {
 	protected static final int TLV_MINSIZE = 3;
 	protected static final int EXT_MAXSIZE = 2;
 	
+	private static final ThreadLocal<Serializer> WRITERS = ThreadLocal.withInitial(MiniTLV::getWriter);
+	private static final ThreadLocal<Parser> READERS = ThreadLocal.withInitial(MiniTLV::getReader);
+	private static final Map<Algorithm, CryptoEngine> ENGINES = new EnumMap<>(Algorithm.class);
+	
+	static {
+		for (Algorithm algo : Algorithm.values()) {
+			ENGINES.put(algo, new MiniTLVCryptoEngine(algo));
+		}
+	}
+	
 	private MiniTLV() {
 	}
 
@@ -81,6 +134,216 @@ public class MiniTLV {
 		return new MiniTLVParser(new DefaultConverter());
 	}
 	
+	/**
+	 * Retrieve the reset MiniTLV Serializer
+	 * of the current thread
+	 * using {@link org.melua.DefaultConverter DefaultConverter}.
+	 * It is reset again by the next call from the same thread,
+	 * and must not be shared with other threads.
+	 *
+	 * @return a pooled instance
+	 */
+	public static Serializer pooledWriter() {
+		return WRITERS.get().reset();
+	}
+	
+	/**
+	 * Retrieve the reset MiniTLV Parser
+	 * of the current thread
+	 * using {@link org.melua.DefaultConverter DefaultConverter}.
+	 * It is reset again by the next call from the same thread,
+	 * and must not be shared with other threads.
+	 *
+	 * @return a pooled instance
+	 */
+	public static Parser pooledReader() {
+		return READERS.get().reset();
+	}
+	
+	/**
+	 * Parse the given independent messages in parallel
+	 * on the {@link ForkJoinPool#commonPool() common pool}.
+	 *
+	 * @param messages to read from their position to their limit
+	 * @return a RecordMap per message, in the same order
+	 * @throws IOException
+	 */
+	public static List<RecordMap> parseAll(List<ByteBuffer> messages) throws IOException {
+		return MiniTLVBatch.parseAll(messages, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Parse the given independent messages in parallel
+	 * on the given executor.
+	 *
+	 * @param messages to read from their position to their limit
+	 * @param executor to run the parsing tasks
+	 * @return a RecordMap per message, in the same order
+	 * @throws IOException
+	 */
+	public static List<RecordMap> parseAll(List<ByteBuffer> messages, ExecutorService executor) throws IOException {
+		return MiniTLVBatch.parseAll(messages, executor);
+	}
+	
+	/**
+	 * Parse the given independent messages in parallel
+	 * on the {@link ForkJoinPool#commonPool() common pool},
+	 * and pass each one to the given consumer with its index.
+	 * The RecordMap is reused by the worker for its next message,
+	 * and must not be kept after the call.
+	 *
+	 * @param messages to read from their position to their limit
+	 * @param consumer of index and map, called concurrently
+	 * @throws IOException
+	 */
+	public static void parseEach(List<ByteBuffer> messages, IntObjConsumer<RecordMap> consumer) throws IOException {
+		MiniTLVBatch.parseEach(messages, consumer, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Parse the given independent messages in parallel
+	 * on the given executor,
+	 * and pass each one to the given consumer with its index.
+	 * The RecordMap is reused by the worker for its next message,
+	 * and must not be kept after the call.
+	 *
+	 * @param messages to read from their position to their limit
+	 * @param consumer of index and map, called concurrently
+	 * @param executor to run the parsing tasks
+	 * @throws IOException
+	 */
+	public static void parseEach(List<ByteBuffer> messages, IntObjConsumer<RecordMap> consumer, ExecutorService executor) throws IOException {
+		MiniTLVBatch.parseEach(messages, consumer, executor);
+	}
+	
+	/**
+	 * Retrieve an instance
+	 * of the MiniTLV View
+	 * over the given buffer
+	 * 
+	 * @param buffer to read from its position to its limit
+	 * @param converter the bytes converter
+	 * @return a new instance
+	 */
+	public static View getView(ByteBuffer buffer, Converter converter) {
+		return new MiniTLVView(buffer, converter);
+	}
+	
+	/**
+	 * Retrieve an instance of the MiniTLV View
+	 * over the given buffer
+	 * using {@link org.melua.DefaultConverter DefaultConverter}
+	 *
+	 * @param buffer to read from its position to its limit
+	 * @return a new instance
+	 */
+	public static View getView(ByteBuffer buffer) {
+		return new MiniTLVView(buffer, new DefaultConverter());
+	}
+	
+	/**
+	 * Retrieve an instance
+	 * of the MiniTLV MappedFile
+	 * 
+	 * @param path of the file to map
+	 * @param converter the bytes converter
+	 * @return a new instance
+	 * @throws IOException
+	 */
+	public static MappedFile getMappedFile(Path path, Converter converter) throws IOException {
+		return new MiniTLVMappedFile(path, converter);
+	}
+	
+	/**
+	 * Retrieve an instance of the MiniTLV MappedFile
+	 * using {@link org.melua.DefaultConverter DefaultConverter}
+	 * 
+	 * @param path of the file to map
+	 * @return a new instance
+	 * @throws IOException
+	 */
+	public static MappedFile getMappedFile(Path path) throws IOException {
+		return new MiniTLVMappedFile(path, new DefaultConverter());
+	}
+	
+	/**
+	 * Retrieve an instance
+	 * of the MiniTLV Journal
+	 * 
+	 * @param directory of the segment and index files
+	 * @param segmentSize in bytes before rolling to a new segment
+	 * @param syncEvery number of records between two syncs, or 0 to sync only on demand
+	 * @param converter the bytes converter
+	 * @return a new instance
+	 * @throws IOException
+	 */
+	public static Journal getJournal(Path directory, int segmentSize, int syncEvery, Converter converter) throws IOException {
+		return new MiniTLVJournal(directory, segmentSize, syncEvery, converter);
+	}
+	
+	/**
+	 * Retrieve an instance of the MiniTLV Journal
+	 * using {@link org.melua.DefaultConverter DefaultConverter}
+	 * 
+	 * @param directory of the segment and index files
+	 * @param segmentSize in bytes before rolling to a new segment
+	 * @param syncEvery number of records between two syncs, or 0 to sync only on demand
+	 * @return a new instance
+	 * @throws IOException
+	 */
+	public static Journal getJournal(Path directory, int segmentSize, int syncEvery) throws IOException {
+		return new MiniTLVJournal(directory, segmentSize, syncEvery, new DefaultConverter());
+	}
+	
+	/**
+	 * Retrieve an instance
+	 * of the MiniTLV StreamReader
+	 * over a blocking channel
+	 * 
+	 * @param channel to read
+	 * @param bufferSize in bytes
+	 * @return a new instance
+	 */
+	public static StreamReader getStreamReader(ReadableByteChannel channel, int bufferSize) {
+		return new MiniTLVStreamReader(channel, bufferSize);
+	}
+	
+	/**
+	 * Retrieve an instance
+	 * of the MiniTLV StreamReader
+	 * 
+	 * @param stream to read
+	 * @param bufferSize in bytes
+	 * @return a new instance
+	 */
+	public static StreamReader getStreamReader(InputStream stream, int bufferSize) {
+		return new MiniTLVStreamReader(Channels.newChannel(stream), bufferSize);
+	}
+	
+	/**
+	 * Retrieve an instance
+	 * of the MiniTLV StreamWriter
+	 * 
+	 * @param channel to write
+	 * @param bufferSize in bytes
+	 * @return a new instance
+	 */
+	public static StreamWriter getStreamWriter(WritableByteChannel channel, int bufferSize) {
+		return new MiniTLVStreamWriter(channel, null, bufferSize, new DefaultConverter());
+	}
+	
+	/**
+	 * Retrieve an instance
+	 * of the MiniTLV StreamWriter
+	 * 
+	 * @param stream to write
+	 * @param bufferSize in bytes
+	 * @return a new instance
+	 */
+	public static StreamWriter getStreamWriter(OutputStream stream, int bufferSize) {
+		return new MiniTLVStreamWriter(Channels.newChannel(stream), stream, bufferSize, new DefaultConverter());
+	}
+	
 	/**
 	 * Retrieve an instance
 	 * of the MiniTLV Crypto
@@ -104,6 +367,128 @@ public class MiniTLV {
 		return new MiniTLVCrypto(Algorithm.AES128);
 	}
 	
+	/**
+	 * Retrieve the shared instance
+	 * of the MiniTLV CryptoEngine,
+	 * safe to use from many threads
+	 *
+	 * @param algo
+	 * @return the shared instance
+	 */
+	public static CryptoEngine getCryptoEngine(Algorithm algo) {
+		return ENGINES.get(algo);
+	}
+	
+	/**
+	 * Retrieve the shared instance
+	 * of the MiniTLV CryptoEngine
+	 * using {@link Algorithm#AES128 AES128}
+	 * algorithm
+	 *
+	 * @return the shared instance
+	 */
+	public static CryptoEngine getCryptoEngine() {
+		return ENGINES.get(Algorithm.AES128);
+	}
+	
+	/**
+	 * Retrieve a new session
+	 * deriving one key from the given secret
+	 * for all the messages it encrypts
+	 *
+	 * @param algo
+	 * @param secret used for encryption
+	 * @return a new instance
+	 * @throws GeneralSecurityException
+	 */
+	public static Session getSession(Algorithm algo, String secret) throws GeneralSecurityException {
+		return new MiniTLVSession(algo, secret, true);
+	}
+	
+	/**
+	 * Retrieve a new session
+	 * deriving one key from the given secret
+	 * for all the messages it encrypts,
+	 * and decrypting only its own messages if other salts are refused,
+	 * so that forged salts cost no key derivation
+	 *
+	 * @param algo
+	 * @param secret used for encryption
+	 * @param otherSalts true to decrypt messages of other sessions with the same secret
+	 * @return a new instance
+	 * @throws GeneralSecurityException
+	 */
+	public static Session getSession(Algorithm algo, String secret, boolean otherSalts) throws GeneralSecurityException {
+		return new MiniTLVSession(algo, secret, otherSalts);
+	}
+	
+	/**
+	 * Retrieve a new session
+	 * using {@link Algorithm#AES128 AES128}
+	 * algorithm
+	 *
+	 * @param secret used for encryption
+	 * @return a new instance
+	 * @throws GeneralSecurityException
+	 */
+	public static Session getSession(String secret) throws GeneralSecurityException {
+		return new MiniTLVSession(Algorithm.AES128, secret, true);
+	}
+	
+	/**
+	 * Zero and forget every derived key kept to avoid running PBKDF2 again.
+	 */
+	public static void clearKeys() {
+		MiniTLVKeys.clear();
+	}
+	
+	/**
+	 * Register the given codec, so that
+	 * {@link Compressor#decompress()} recognizes its identifier.
+	 * The {@link StandardCodec standard codecs} are always registered.
+	 *
+	 * @param codec to register
+	 * @throws IllegalArgumentException if another codec has the same identifier
+	 */
+	public static void registerCodec(Codec codec) {
+		MiniTLVCodecs.register(codec);
+	}
+	
+	/**
+	 * Train a preset dictionary for DEFLATE
+	 * from the byte sequences shared by the given sample messages.
+	 *
+	 * @param samples serialized messages
+	 * @param size maximum size of the dictionary, up to 32768 bytes
+	 * @return dictionary
+	 */
+	public static byte[] trainDictionary(Collection<byte[]> samples, int size) {
+		return MiniTLVDictionary.train(samples, size);
+	}
+	
+	/**
+	 * Register the given preset dictionary, so that
+	 * data compressed with it is decompressed transparently.
+	 *
+	 * @param dictionary preset
+	 * @return identifier of the dictionary, its Adler-32 checksum
+	 * @throws IllegalArgumentException if another dictionary is registered with the same identifier
+	 */
+	public static int registerDictionary(byte[] dictionary) {
+		return MiniTLVDictionary.register(dictionary);
+	}
+	
+	/**
+	 * Retrieve a new pipeline
+	 * streaming records through compression and encryption,
+	 * none being configured yet
+	 *
+	 * @return a new instance
+	 */
+	public static Pipeline pipeline() {
+		return new MiniTLVPipeline();
+	}
+	
 	/**
 	 * Retrieve an instance
 	 * of the MiniTLV Compressor
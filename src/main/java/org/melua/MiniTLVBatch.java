@@ -0,0 +1,150 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.melua.api.IntObjConsumer;
+import org.melua.api.RecordMap;
+
+/**
+ * Parse batches of independent Type-Length-Value messages in parallel.
+ * The batch is split into contiguous ranges, a few per worker,
+ * and each range is parsed by one task with its own state.
+ *
+ */
+final class MiniTLVBatch {
+	
+	private static final int TASKS_PER_WORKER = 4;
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+	
+	private MiniTLVBatch() {
+	}
+	
+	/**
+	 * Task parsing the items from one index to another.
+	 */
+	@FunctionalInterface
+	interface Range {
+		void parse(int from, int to) throws IOException;
+	}
+	
+	/**
+	 * Parse each message into its own RecordMap.
+	 * @param messages to read from their position to their limit
+	 * @param executor to run the tasks
+	 * @return maps in the order of the messages
+	 * @throws IOException
+	 */
+	static List<RecordMap> parseAll(List<ByteBuffer> messages, ExecutorService executor) throws IOException {
+		RecordMap[] maps = new RecordMap[messages.size()];
+		run(messages.size(), executor, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				ByteBuffer message = messages.get(i);
+				maps[i] = new MiniTLVRecordMap(message, MiniTLVIndex.scan(message));
+			}
+		});
+		return Arrays.asList(maps);
+	}
+	
+	/**
+	 * Parse each message into a RecordMap reused by each task,
+	 * and pass it to the given consumer with the index of the message.
+	 * @param messages to read from their position to their limit
+	 * @param consumer of index and map, called concurrently
+	 * @param executor to run the tasks
+	 * @throws IOException
+	 */
+	static void parseEach(List<ByteBuffer> messages, IntObjConsumer<RecordMap> consumer, ExecutorService executor) throws IOException {
+		run(messages.size(), executor, (from, to) -> {
+			MiniTLVRecordMap map = new MiniTLVRecordMap(EMPTY, new MiniTLVIndex(0));
+			for (int i = from; i < to; i++) {
+				consumer.accept(i, map.reload(messages.get(i)));
+			}
+		});
+	}
+	
+	/**
+	 * Split the given number of items into contiguous ranges,
+	 * a few per worker of the executor, and wait for every range.
+	 * @param size number of items
+	 * @param executor to run the tasks
+	 * @param range task for each range
+	 * @throws IOException
+	 */
+	static void run(int size, ExecutorService executor, Range range) throws IOException {
+		int parallelism = executor instanceof ForkJoinPool
+				? ((ForkJoinPool) executor).getParallelism()
+				: Runtime.getRuntime().availableProcessors();
+		
+		/*
+		 * Split into contiguous ranges
+		 */
+		int tasks = Math.min(size, Math.max(1, parallelism) * TASKS_PER_WORKER);
+		List<Future<?>> futures = new ArrayList<>(tasks);
+		for (int task = 0; task < tasks; task++) {
+			int from = (int) ((long) size * task / tasks);
+			int to = (int) ((long) size * (task + 1) / tasks);
+			futures.add(executor.submit(() -> {
+				range.parse(from, to);
+				return null;
+			}));
+		}
+		
+		/*
+		 * Wait for every range, stop on first failure
+		 */
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			cancel(futures);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			cancel(futures);
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+	
+	private static void cancel(List<Future<?>> futures) {
+		for (Future<?> future : futures) {
+			future.cancel(true);
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Decrypt a stream written by {@link MiniTLVCipherOutputStream} chunk by chunk.
+ * A chunk is only returned once its tag has been checked,
+ * and a stream ending before its last chunk is reported as corrupted.
+ *
+ */
+public class MiniTLVCipherInputStream extends InputStream {
+	
+	private final DataInputStream input;
+	private final String secret;
+	private byte[] header;
+	private byte[] prefix;
+	private SecretKeySpec key;
+	private Cipher cipher;
+	
+	private byte[] encrypted;
+	private byte[] chunk;
+	private int position;
+	private int size;
+	private int index;
+	private boolean last;
+	
+	protected MiniTLVCipherInputStream(InputStream input, String secret) {
+		this.input = new DataInputStream(input);
+		this.secret = secret;
+	}
+	
+	/**
+	 * Read the header and derive the key of the stream.
+	 * @throws IOException
+	 */
+	private void readHeader() throws IOException {
+		int keyLength = this.input.readUnsignedByte();
+		
+		/*
+		 * Prevent a key length of no algorithm, before caching its key
+		 */
+		if (!Algorithm.isKeyLength(keyLength)) {
+			throw new StreamCorruptedException();
+		}
+		byte[] salt = new byte[keyLength];
+		this.input.readFully(salt);
+		this.prefix = new byte[MiniTLVCipherOutputStream.PREFIX_SIZE];
+		this.input.readFully(this.prefix);
+		int chunkSize = this.input.readInt();
+		
+		/*
+		 * Prevent bad chunk size
+		 */
+		if (chunkSize <= 0 || chunkSize > MiniTLVCipherOutputStream.MAX_CHUNK_SIZE) {
+			throw new StreamCorruptedException();
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(1 + keyLength + this.prefix.length + Integer.BYTES);
+		buffer.put((byte) keyLength);
+		buffer.put(salt);
+		buffer.put(this.prefix);
+		buffer.putInt(chunkSize);
+		this.header = buffer.array();
+		
+		try {
+			this.key = MiniTLVKeys.derive(this.secret, salt, keyLength);
+			this.cipher = Cipher.getInstance(MiniTLVSession.GCM_ALGORITHM);
+		} catch (GeneralSecurityException e) {
+			throw new IOException(e);
+		}
+		this.encrypted = new byte[chunkSize + MiniTLVSession.TAG_SIZE];
+		this.chunk = new byte[chunkSize];
+	}
+	
+	/**
+	 * Read and decrypt the next chunk.
+	 * @return false at the end of the stream
+	 * @throws IOException
+	 */
+	private boolean readChunk() throws IOException {
+		if (this.last) {
+			return false;
+		}
+		try {
+			if (this.header == null) {
+				readHeader();
+			}
+			this.last = this.input.readByte() == MiniTLVCipherOutputStream.LAST_CHUNK;
+			int length = this.input.readInt();
+			
+			/*
+			 * Prevent bad chunk length
+			 */
+			if (length < MiniTLVSession.TAG_SIZE || length > this.encrypted.length || this.index < 0) {
+				throw new StreamCorruptedException();
+			}
+			this.input.readFully(this.encrypted, 0, length);
+			
+			/*
+			 * Decrypt and authenticate chunk
+			 */
+			this.cipher.init(Cipher.DECRYPT_MODE, this.key, new GCMParameterSpec(MiniTLVSession.TAG_SIZE * Byte.SIZE,
+					MiniTLVCipherOutputStream.nonce(this.prefix, this.index, this.last)));
+			this.cipher.updateAAD(this.header);
+			this.size = this.cipher.doFinal(this.encrypted, 0, length, this.chunk, 0);
+		} catch (EOFException e) {
+			
+			/*
+			 * Stream truncated before its last chunk
+			 */
+			throw new StreamCorruptedException();
+		} catch (GeneralSecurityException e) {
+			StreamCorruptedException exception = new StreamCorruptedException();
+			exception.initCause(e);
+			throw exception;
+		}
+		this.position = 0;
+		this.index++;
+		return true;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		
+		/*
+		 * Skip empty chunks
+		 */
+		while (this.position == this.size) {
+			if (!readChunk()) {
+				return -1;
+			}
+		}
+		int count = Math.min(len, this.size - this.position);
+		System.arraycopy(this.chunk, this.position, b, off, count);
+		this.position += count;
+		return count;
+	}
+	
+	@Override
+	public int available() {
+		return this.size - this.position;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.input.close();
+	}
+
+}
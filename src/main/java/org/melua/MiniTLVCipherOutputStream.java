@@ -0,0 +1,193 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.INPUT_ERROR;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypt a stream by chunks of fixed size with AES-GCM,
+ * so that memory stays bounded and each chunk is authenticated on its own.
+ * The header holds the key length, the salt, a random nonce prefix and the chunk size,
+ * then each chunk is written as a last-chunk flag, its length and its encrypted bytes.
+ * The nonce of a chunk is the prefix, the chunk index and the flag,
+ * so that chunks cannot be reordered, dropped or truncated unnoticed.
+ *
+ */
+public class MiniTLVCipherOutputStream extends OutputStream {
+	
+	static final int PREFIX_SIZE = 7;
+	static final int MAX_CHUNK_SIZE = 1 << 24;
+	static final byte LAST_CHUNK = 1;
+	
+	private final OutputStream output;
+	private final byte[] header;
+	private final byte[] prefix;
+	private final SecretKeySpec key;
+	private final Cipher cipher;
+	
+	private final byte[] chunk;
+	private byte[] encrypted;
+	private int size;
+	private int index;
+	private boolean finished;
+	
+	protected MiniTLVCipherOutputStream(OutputStream output, int keyLength, String secret, int chunkSize) throws GeneralSecurityException {
+		
+		/*
+		 * Prevent bad chunk size
+		 */
+		if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		this.output = output;
+		this.chunk = new byte[chunkSize];
+		this.encrypted = new byte[chunkSize + MiniTLVSession.TAG_SIZE];
+		
+		/*
+		 * Derive the key for a random salt
+		 */
+		byte[] salt = MiniTLVCiphers.random(new byte[keyLength]);
+		this.prefix = MiniTLVCiphers.random(new byte[PREFIX_SIZE]);
+		this.key = MiniTLVKeys.deriveOnce(secret, salt, keyLength);
+		this.cipher = Cipher.getInstance(MiniTLVSession.GCM_ALGORITHM);
+		
+		ByteBuffer buffer = ByteBuffer.allocate(1 + keyLength + PREFIX_SIZE + Integer.BYTES);
+		buffer.put((byte) keyLength);
+		buffer.put(salt);
+		buffer.put(this.prefix);
+		buffer.putInt(chunkSize);
+		this.header = buffer.array();
+	}
+	
+	/**
+	 * Build the nonce of the given chunk.
+	 * @param prefix random prefix of the stream
+	 * @param index of the chunk
+	 * @param last true for the last chunk
+	 * @return nonce
+	 */
+	static byte[] nonce(byte[] prefix, int index, boolean last) {
+		ByteBuffer nonce = ByteBuffer.allocate(MiniTLVSession.NONCE_SIZE);
+		nonce.put(prefix);
+		nonce.putInt(index);
+		nonce.put(last ? LAST_CHUNK : 0);
+		return nonce.array();
+	}
+	
+	/**
+	 * Encrypt and write the buffered chunk.
+	 * @param last true for the last chunk
+	 * @throws IOException
+	 */
+	private void writeChunk(boolean last) throws IOException {
+		if (this.index == 0) {
+			this.output.write(this.header);
+		}
+		
+		/*
+		 * Prevent nonce reuse
+		 */
+		if (this.index < 0) {
+			throw new IOException(INPUT_ERROR);
+		}
+		
+		int length;
+		try {
+			this.cipher.init(Cipher.ENCRYPT_MODE, this.key,
+					new GCMParameterSpec(MiniTLVSession.TAG_SIZE * Byte.SIZE, nonce(this.prefix, this.index, last)));
+			this.cipher.updateAAD(this.header);
+			length = this.cipher.doFinal(this.chunk, 0, this.size, this.encrypted, 0);
+		} catch (GeneralSecurityException e) {
+			throw new IOException(e);
+		}
+		
+		/*
+		 * Write flag, length and encrypted chunk
+		 */
+		ByteBuffer frame = ByteBuffer.allocate(1 + Integer.BYTES);
+		frame.put(last ? LAST_CHUNK : 0);
+		frame.putInt(length);
+		this.output.write(frame.array());
+		this.output.write(this.encrypted, 0, length);
+		
+		this.size = 0;
+		this.index++;
+	}
+	
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] {(byte) b}, 0, 1);
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (this.finished) {
+			throw new IOException(INPUT_ERROR);
+		}
+		while (len > 0) {
+			
+			/*
+			 * Write a full chunk only when more bytes follow
+			 */
+			if (this.size == this.chunk.length) {
+				writeChunk(false);
+			}
+			int count = Math.min(len, this.chunk.length - this.size);
+			System.arraycopy(b, off, this.chunk, this.size, count);
+			this.size += count;
+			off += count;
+			len -= count;
+		}
+	}
+	
+	/**
+	 * Encrypt and write the last chunk, without closing the underlying stream.
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		if (!this.finished) {
+			writeChunk(true);
+			this.finished = true;
+			this.output.flush();
+		}
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		this.output.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			this.output.close();
+		}
+	}
+
+}
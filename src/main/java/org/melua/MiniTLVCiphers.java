@@ -0,0 +1,74 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+
+/**
+ * Per-thread Cipher instances by transformation and a shared SecureRandom,
+ * avoiding provider lookups and seeding on every message.
+ * A Cipher is only used by its thread within a single call,
+ * and is initialized again before each use.
+ *
+ */
+final class MiniTLVCiphers {
+	
+	private static final SecureRandom RANDOM = new SecureRandom();
+	private static final ThreadLocal<Map<String, Cipher>> CIPHERS = ThreadLocal.withInitial(HashMap::new);
+	
+	private MiniTLVCiphers() {
+	}
+	
+	/**
+	 * Retrieve the Cipher of the current thread for the given transformation.
+	 * @param transformation such as {@link MiniTLVSession#GCM_ALGORITHM}
+	 * @return Cipher to initialize before use
+	 * @throws GeneralSecurityException
+	 */
+	static Cipher get(String transformation) throws GeneralSecurityException {
+		Map<String, Cipher> ciphers = CIPHERS.get();
+		Cipher cipher = ciphers.get(transformation);
+		if (cipher == null) {
+			cipher = Cipher.getInstance(transformation);
+			ciphers.put(transformation, cipher);
+		}
+		return cipher;
+	}
+	
+	/**
+	 * Fill the given array with random bytes from the shared SecureRandom.
+	 * @param bytes to fill
+	 * @return the given array
+	 */
+	static byte[] random(byte[] bytes) {
+		RANDOM.nextBytes(bytes);
+		return bytes;
+	}
+	
+	/**
+	 * @return a random integer from the shared SecureRandom
+	 */
+	static int randomInt() {
+		return RANDOM.nextInt();
+	}
+
+}
@@ -0,0 +1,190 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.INPUT_ERROR;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.DataFormatException;
+
+import org.melua.api.Codec;
+
+/**
+ * Registry of codecs by identifier:
+ * the {@link StandardCodec standard codecs}, then those
+ * found by {@link ServiceLoader}, then those registered at runtime.
+ *
+ */
+final class MiniTLVCodecs {
+	
+	static final String CODEC_ERROR = "Codec identifier already registered.";
+	static final String UNKNOWN_ERROR = "Unknown codec identifier.";
+	
+	/*
+	 * Trial compression of the first bytes at best speed
+	 */
+	static final int SAMPLE_SIZE = 4096;
+	static final double MIN_GAIN = 0.1;
+	
+	private static final AtomicReferenceArray<Codec> CODECS = new AtomicReferenceArray<>(1 << Byte.SIZE);
+	
+	static {
+		for (Codec codec : StandardCodec.values()) {
+			register(codec);
+		}
+		for (Codec codec : ServiceLoader.load(Codec.class)) {
+			register(codec);
+		}
+	}
+	
+	private MiniTLVCodecs() {
+	}
+	
+	/**
+	 * Register the given codec.
+	 * @param codec to register
+	 */
+	static void register(Codec codec) {
+		if (!CODECS.compareAndSet(codec.getId() & 0xff, null, codec) && CODECS.get(codec.getId() & 0xff) != codec) {
+			throw new IllegalArgumentException(CODEC_ERROR);
+		}
+	}
+	
+	/**
+	 * Retrieve the codec for the given identifier.
+	 * @param id of the codec
+	 * @return codec, or null if not registered
+	 */
+	static Codec get(byte id) {
+		return CODECS.get(id & 0xff);
+	}
+	
+	/**
+	 * Count written bytes without keeping them.
+	 */
+	private static final class CountingStream extends OutputStream {
+		private long count;
+		
+		@Override
+		public void write(int b) {
+			this.count++;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) {
+			this.count += len;
+		}
+	}
+	
+	/**
+	 * Trial-compress the first {@link #SAMPLE_SIZE} bytes at best speed.
+	 * @param codec to try
+	 * @param data to sample
+	 * @param offset of the first byte
+	 * @param length number of bytes
+	 * @param minGain minimum size reduction, from 0 to 1
+	 * @return true if the sample shrinks by at least the given gain
+	 * @throws IOException
+	 */
+	static boolean isCompressible(Codec codec, byte[] data, int offset, int length, double minGain) throws IOException {
+		int sample = Math.min(length, SAMPLE_SIZE);
+		CountingStream counter = new CountingStream();
+		codec.compress(data, offset, sample, Level.BEST_SPEED.getValue(), counter);
+		return counter.count <= sample * (1 - minGain);
+	}
+	
+	/**
+	 * Decompress the given bytes with the codec identified by their first byte.
+	 * @param data to decompress
+	 * @param offset of the codec identifier
+	 * @param length number of bytes, with the identifier
+	 * @return decompressed data
+	 * @throws DataFormatException if the codec is unknown or the data invalid
+	 */
+	static byte[] decompress(byte[] data, int offset, int length) throws DataFormatException {
+		
+		/*
+		 * Prevent bad input
+		 */
+		if (length <= 0) {
+			throw new DataFormatException(INPUT_ERROR);
+		}
+		
+		/*
+		 * Pick codec from 1st byte
+		 */
+		Codec codec = get(data[offset]);
+		if (codec == null) {
+			throw new DataFormatException(UNKNOWN_ERROR);
+		}
+		return codec.decompress(data, offset + 1, length - 1);
+	}
+	
+	/**
+	 * Decompress the remaining bytes of the given buffer
+	 * with the codec identified by their first byte.
+	 * @param value to decompress, whose position is left unchanged
+	 * @return decompressed data
+	 * @throws DataFormatException if the codec is unknown or the data invalid
+	 */
+	static byte[] decompress(ByteBuffer value) throws DataFormatException {
+		if (value.hasArray()) {
+			return decompress(value.array(), value.arrayOffset() + value.position(), value.remaining());
+		}
+		byte[] data = new byte[value.remaining()];
+		value.duplicate().get(data);
+		return decompress(data, 0, data.length);
+	}
+	
+	/**
+	 * Decompress the given wrapped value for a Parser.
+	 * @param data to decompress
+	 * @param offset of the codec identifier
+	 * @param length number of bytes, with the identifier
+	 * @return decompressed data
+	 * @throws StreamCorruptedException if the codec is unknown or the data invalid
+	 */
+	static byte[] unwrap(byte[] data, int offset, int length) throws StreamCorruptedException {
+		try {
+			return decompress(data, offset, length);
+		} catch (DataFormatException e) {
+			StreamCorruptedException exception = new StreamCorruptedException(e.getMessage());
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+	
+	/**
+	 * Decompress the given wrapped value for a RecordMap or a View.
+	 * @param value to decompress, whose position is left unchanged
+	 * @return decompressed data
+	 * @throws IllegalArgumentException if the codec is unknown or the data invalid
+	 */
+	static byte[] unwrap(ByteBuffer value) {
+		try {
+			return decompress(value);
+		} catch (DataFormatException e) {
+			throw new IllegalArgumentException(INPUT_ERROR, e);
+		}
+	}
+
+}
@@ -16,12 +16,18 @@ package org.melua;
  * limitations under the License.
  */
 
+import static org.melua.MiniTLV.INPUT_ERROR;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
 
+import org.melua.api.Codec;
 import org.melua.api.Compressor;
 
 public class MiniTLVCompressor implements Compressor {
@@ -33,6 +39,36 @@ public class MiniTLVCompressor implements Compressor {
 		this.compressionLevel = level.getValue();
 	}
 	
+	/**
+	 * Write the given bytes fully to the given channel.
+	 * @param channel to write
+	 * @param buffer to write from its start
+	 * @param length number of bytes to write
+	 * @return number of written bytes
+	 * @throws IOException
+	 */
+	private static int write(WritableByteChannel channel, byte[] buffer, int length) throws IOException {
+		ByteBuffer output = ByteBuffer.wrap(buffer, 0, length);
+		while (output.hasRemaining()) {
+			channel.write(output);
+		}
+		return length;
+	}
+	
+	/**
+	 * Give the registered preset dictionary,
+	 * or prevent endless inflating of truncated data.
+	 * @param inflater which inflated nothing
+	 * @throws DataFormatException
+	 */
+	private static void checkProgress(Inflater inflater) throws DataFormatException {
+		if (inflater.needsDictionary()) {
+			MiniTLVDictionary.setDictionary(inflater);
+		} else if (inflater.needsInput()) {
+			throw new DataFormatException(INPUT_ERROR);
+		}
+	}
+	
 	@Override
 	public byte[] deflate(int bufferSize) throws IOException {
 		
@@ -41,7 +77,7 @@ public class MiniTLVCompressor implements Compressor {
 		 */
 		byte[] data = this.innerStream.toByteArray();
 		
-		Deflater deflater = new Deflater(compressionLevel);
+		Deflater deflater = MiniTLVZip.deflater(compressionLevel);
 		deflater.setInput(data);
 
 		try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length)) {
@@ -52,6 +88,8 @@ public class MiniTLVCompressor implements Compressor {
 				outputStream.write(buffer, 0, deflater.deflate(buffer));
 			}
 			return outputStream.toByteArray();
+		} finally {
+			MiniTLVZip.release(deflater);
 		}
 	}
 
@@ -63,19 +101,177 @@ public class MiniTLVCompressor implements Compressor {
 		 */
 		byte[] data = this.innerStream.toByteArray();
 		
-		Inflater inflater = new Inflater();
+		Inflater inflater = MiniTLVZip.inflater();
 		inflater.setInput(data);
 
 		try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length)) {
 
 			byte[] buffer = new byte[bufferSize];
 			while (!inflater.finished()) {
-				outputStream.write(buffer, 0, inflater.inflate(buffer));
+				int count = inflater.inflate(buffer);
+				if (count == 0 && !inflater.finished()) {
+					checkProgress(inflater);
+				}
+				outputStream.write(buffer, 0, count);
 			}
 			return outputStream.toByteArray();
+		} finally {
+			MiniTLVZip.release(inflater);
 		}
     }
 	
+	@Override
+	public long deflate(ReadableByteChannel input, WritableByteChannel output, int bufferSize) throws IOException {
+		Deflater deflater = MiniTLVZip.deflater(compressionLevel);
+		try {
+			byte[] inputBuffer = new byte[bufferSize];
+			byte[] outputBuffer = new byte[bufferSize];
+			ByteBuffer reading = ByteBuffer.wrap(inputBuffer);
+			long written = 0;
+			
+			/*
+			 * Compress each read block
+			 */
+			int read;
+			while ((read = input.read(reading)) >= 0) {
+				deflater.setInput(inputBuffer, 0, read);
+				while (!deflater.needsInput()) {
+					written += write(output, outputBuffer, deflater.deflate(outputBuffer));
+				}
+				reading.clear();
+			}
+			
+			/*
+			 * Flush the last compressed bytes
+			 */
+			deflater.finish();
+			while (!deflater.finished()) {
+				written += write(output, outputBuffer, deflater.deflate(outputBuffer));
+			}
+			return written;
+		} finally {
+			MiniTLVZip.release(deflater);
+		}
+	}
+	
+	@Override
+	public long inflate(ReadableByteChannel input, WritableByteChannel output, int bufferSize) throws IOException, DataFormatException {
+		Inflater inflater = MiniTLVZip.inflater();
+		try {
+			byte[] inputBuffer = new byte[bufferSize];
+			byte[] outputBuffer = new byte[bufferSize];
+			ByteBuffer reading = ByteBuffer.wrap(inputBuffer);
+			long written = 0;
+			
+			while (!inflater.finished()) {
+				
+				/*
+				 * Read the next compressed block
+				 */
+				if (inflater.needsInput()) {
+					reading.clear();
+					int read = input.read(reading);
+					if (read < 0) {
+						throw new DataFormatException(INPUT_ERROR);
+					}
+					inflater.setInput(inputBuffer, 0, read);
+					continue;
+				}
+				
+				/*
+				 * Give the registered preset dictionary
+				 */
+				if (inflater.needsDictionary()) {
+					MiniTLVDictionary.setDictionary(inflater);
+					continue;
+				}
+				written += write(output, outputBuffer, inflater.inflate(outputBuffer));
+			}
+			return written;
+		} finally {
+			MiniTLVZip.release(inflater);
+		}
+	}
+	
+	@Override
+	public byte[] compress(Codec codec) throws IOException {
+		
+		/*
+		 * Convert stream to byte array
+		 */
+		byte[] data = this.innerStream.toByteArray();
+		
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 2 + 1);
+		outputStream.write(codec.getId());
+		codec.compress(data, 0, data.length, compressionLevel, outputStream);
+		return outputStream.toByteArray();
+	}
+	
+	@Override
+	public byte[] compressAdaptive(Codec codec, double minGain) throws IOException {
+		
+		/*
+		 * Prevent bad gain
+		 */
+		if (!(minGain >= 0 && minGain < 1)) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		/*
+		 * Convert stream to byte array
+		 */
+		byte[] data = this.innerStream.toByteArray();
+		
+		/*
+		 * Skip incompressible data after a trial on its first bytes
+		 */
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 2 + 1);
+		if (data.length <= MiniTLVCodecs.SAMPLE_SIZE || MiniTLVCodecs.isCompressible(codec, data, 0, data.length, minGain)) {
+			
+			/*
+			 * Compress with a level picked by size
+			 */
+			outputStream.write(codec.getId());
+			codec.compress(data, 0, data.length, Level.forSize(data.length).getValue(), outputStream);
+			if (outputStream.size() - 1 <= data.length * (1 - minGain)) {
+				return outputStream.toByteArray();
+			}
+			outputStream.reset();
+		}
+		
+		/*
+		 * Fall back to stored data
+		 */
+		outputStream.write(StandardCodec.STORED.getId());
+		outputStream.write(data);
+		return outputStream.toByteArray();
+	}
+	
+	@Override
+	public byte[] compress(byte[] dictionary) throws IOException {
+		
+		/*
+		 * Convert stream to byte array
+		 */
+		byte[] data = this.innerStream.toByteArray();
+		
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 2 + 1);
+		outputStream.write(StandardCodec.DEFLATE.getId());
+		MiniTLVZip.deflate(data, 0, data.length, compressionLevel, false, dictionary, outputStream);
+		return outputStream.toByteArray();
+	}
+	
+	@Override
+	public byte[] decompress() throws IOException, DataFormatException {
+		
+		/*
+		 * Convert stream to byte array
+		 */
+		byte[] data = this.innerStream.toByteArray();
+		
+		return MiniTLVCodecs.decompress(data, 0, data.length);
+	}
+	
 	@Override
 	public Compressor add(byte[] data) throws IOException {
 		innerStream.write(data);
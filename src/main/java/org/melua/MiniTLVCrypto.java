@@ -18,110 +18,88 @@ package org.melua;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.GeneralSecurityException;
-import java.security.Key;
-import java.security.SecureRandom;
-import java.security.spec.KeySpec;
-import java.util.Arrays;
-
-import javax.crypto.Cipher;
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
-import javax.crypto.spec.SecretKeySpec;
 
 import org.melua.api.Crypto;
+import org.melua.api.CryptoEngine;
 
 public class MiniTLVCrypto implements Crypto {
 	
-	private static final int PBKDF2_ITERATIONS = 10_000;
-	private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA1";
-	private static final String AES_ALGORITHM = "AES";
-	
 	private final int keyLength;
+	private final CryptoEngine engine;
 	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 	
 	protected MiniTLVCrypto(Algorithm algo) {
 		this.keyLength = algo.getKeyLength();
-	}
-
-	/**
-	 * Computes the PBKDF2 hash.
-	 *
-	 * @param secret the password to hash
-	 * @param salt the salt
-	 * @return the PBDKF2 hash of the password
-	 * @throws GeneralSecurityException
-	 */
-	private byte[] pbkdf2(String secret, byte[] salt) throws GeneralSecurityException {
-		KeySpec spec = new PBEKeySpec(secret.toCharArray(), salt, PBKDF2_ITERATIONS, this.keyLength * Byte.SIZE);
-		return SecretKeyFactory.getInstance(PBKDF2_ALGORITHM).generateSecret(spec).getEncoded();
+		this.engine = MiniTLV.getCryptoEngine(algo);
 	}
 
 	@Override
 	public byte[] encrypt(String secret) throws GeneralSecurityException {
-		
-		/*
-		 * Convert buffer to byte array
-		 */
-		byte[] data = this.buffer.toByteArray();
-
-		/*
-		 * Generate random salt
-		 */
-		byte[] salt = new byte[keyLength];
-		SecureRandom random = new SecureRandom();
-		random.nextBytes(salt);
-
-		/*
-		 * Create cipher key with salt and password
-		 */
-		Key key = new SecretKeySpec(pbkdf2(secret, salt), AES_ALGORITHM);
-
-		/*
-		 * Encrypt data
-		 */
-		Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-		cipher.init(Cipher.ENCRYPT_MODE, key);
-		byte[] encrypted = cipher.doFinal(data);
-
-		/*
-		 * Return salt and encrypted data
-		 */
-		ByteBuffer result = ByteBuffer.allocate(salt.length + encrypted.length);
-		result.put(salt);
-		result.put(encrypted);
-
-		return result.array();
-    }
-
+		return this.engine.encrypt(this.buffer.toByteArray(), secret);
+	}
+	
 	@Override
 	public byte[] decrypt(String secret) throws GeneralSecurityException {
+		return this.engine.decrypt(this.buffer.toByteArray(), secret);
+	}
+	
+	@Override
+	public OutputStream encryptStream(OutputStream output, String secret, int chunkSize) throws GeneralSecurityException {
+		return new MiniTLVCipherOutputStream(output, keyLength, secret, chunkSize);
+	}
+	
+	@Override
+	public InputStream decryptStream(InputStream input, String secret) {
+		return new MiniTLVCipherInputStream(input, secret);
+	}
+	
+	@Override
+	public long encrypt(ReadableByteChannel input, WritableByteChannel output, String secret, int chunkSize) throws IOException, GeneralSecurityException {
+		MiniTLVCipherOutputStream stream = new MiniTLVCipherOutputStream(Channels.newOutputStream(output), keyLength, secret, chunkSize);
+		ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+		long total = 0;
 		
 		/*
-		 * Convert buffer to byte array
-		 */
-		byte[] data = this.buffer.toByteArray();
-
-		/*
-		 * Extract salt
+		 * Encrypt by chunks until the end of input
 		 */
-		byte[] salt = Arrays.copyOfRange(data, 0, keyLength);
-
+		while (input.read(chunk) >= 0) {
+			stream.write(chunk.array(), 0, chunk.position());
+			total += chunk.position();
+			chunk.clear();
+		}
+		
 		/*
-		 * Create cipher key with salt and password
+		 * Write last chunk, leaving the channel open
 		 */
-		Key key = new SecretKeySpec(pbkdf2(secret, salt), AES_ALGORITHM);
-
+		stream.finish();
+		return total;
+	}
+	
+	@Override
+	public long decrypt(ReadableByteChannel input, WritableByteChannel output, String secret) throws IOException {
+		InputStream stream = new MiniTLVCipherInputStream(Channels.newInputStream(input), secret);
+		byte[] chunk = new byte[MiniTLVZip.BUFFER_SIZE];
+		long total = 0;
+		
 		/*
-		 * Decrypt data
+		 * Decrypt up to the last chunk
 		 */
-		Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-		cipher.init(Cipher.DECRYPT_MODE, key);
-
-		return cipher.doFinal(Arrays.copyOfRange(data, keyLength, data.length));
-    }
+		for (int count = stream.read(chunk); count >= 0; count = stream.read(chunk)) {
+			ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, count);
+			while (buffer.hasRemaining()) {
+				output.write(buffer);
+			}
+			total += count;
+		}
+		return total;
+	}
 	
 	@Override
 	public Crypto add(byte[] data) throws IOException {
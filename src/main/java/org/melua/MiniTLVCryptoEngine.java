@@ -0,0 +1,95 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.INPUT_ERROR;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+
+import org.melua.api.CryptoEngine;
+
+public class MiniTLVCryptoEngine implements CryptoEngine {
+	
+	private static final String AES_ALGORITHM = MiniTLVKeys.AES_ALGORITHM;
+	
+	private final int keyLength;
+	
+	protected MiniTLVCryptoEngine(Algorithm algo) {
+		this.keyLength = algo.getKeyLength();
+	}
+	
+	@Override
+	public byte[] encrypt(byte[] data, String secret) throws GeneralSecurityException {
+		
+		/*
+		 * Generate random salt
+		 */
+		byte[] salt = MiniTLVCiphers.random(new byte[keyLength]);
+		
+		/*
+		 * Create cipher key with salt and password, used once
+		 */
+		Key key = MiniTLVKeys.deriveOnce(secret, salt, keyLength);
+		
+		/*
+		 * Encrypt data with the cipher of the current thread
+		 */
+		Cipher cipher = MiniTLVCiphers.get(AES_ALGORITHM);
+		cipher.init(Cipher.ENCRYPT_MODE, key);
+		
+		/*
+		 * Return salt and encrypted data
+		 */
+		byte[] result = Arrays.copyOf(salt, salt.length + cipher.getOutputSize(data.length));
+		int length = cipher.doFinal(data, 0, data.length, result, salt.length);
+		return salt.length + length == result.length ? result : Arrays.copyOf(result, salt.length + length);
+	}
+	
+	@Override
+	public byte[] decrypt(byte[] data, String secret) throws GeneralSecurityException {
+		
+		/*
+		 * Prevent bad input
+		 */
+		if (data.length < keyLength) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		/*
+		 * Extract salt
+		 */
+		byte[] salt = Arrays.copyOfRange(data, 0, keyLength);
+		
+		/*
+		 * Create cipher key with salt and password, or reuse it
+		 */
+		Key key = MiniTLVKeys.derive(secret, salt, keyLength);
+		
+		/*
+		 * Decrypt data with the cipher of the current thread
+		 */
+		Cipher cipher = MiniTLVCiphers.get(AES_ALGORITHM);
+		cipher.init(Cipher.DECRYPT_MODE, key);
+		
+		return cipher.doFinal(data, keyLength, data.length - keyLength);
+	}
+
+}
@@ -0,0 +1,227 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.INPUT_ERROR;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Preset dictionaries for DEFLATE, trained from sample messages
+ * and registered by their Adler-32 checksum,
+ * which zlib writes as DICTID in the compressed data.
+ *
+ */
+final class MiniTLVDictionary {
+	
+	static final String DICTIONARY_ERROR = "Unknown dictionary.";
+	static final String COLLISION_ERROR = "Another dictionary has the same identifier.";
+	
+	/*
+	 * Sequences are counted by 8 bytes packed in a long
+	 */
+	private static final int GRAM_SIZE = Long.BYTES;
+	private static final int MIN_SAMPLES = 2;
+	
+	/*
+	 * DEFLATE window
+	 */
+	static final int MAX_SIZE = 32_768;
+	
+	private static final Map<Integer, byte[]> DICTIONARIES = new ConcurrentHashMap<>();
+	
+	private MiniTLVDictionary() {
+	}
+	
+	/**
+	 * Sequence seen in several samples, with its first occurrence.
+	 */
+	private static final class Gram {
+		private final int sample;
+		private final int position;
+		private int count;
+		
+		private Gram(int sample, int position) {
+			this.sample = sample;
+			this.position = position;
+		}
+	}
+	
+	private static long pack(byte[] data, int position) {
+		long result = 0;
+		for (int i = position; i < position + GRAM_SIZE; i++) {
+			result = result << Byte.SIZE | data[i] & 0xff;
+		}
+		return result;
+	}
+	
+	/**
+	 * Build a dictionary from the byte sequences
+	 * found in most of the given samples.
+	 * Runs of frequent sequences are appended from the least to the most frequent,
+	 * since DEFLATE encodes closer matches with fewer bits.
+	 * @param samples serialized messages
+	 * @param size maximum size of the dictionary, up to 32 KiB
+	 * @return dictionary
+	 */
+	static byte[] train(Collection<byte[]> samples, int size) {
+		
+		/*
+		 * Prevent bad size
+		 */
+		if (size <= 0 || size > MAX_SIZE) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		/*
+		 * Count each sequence once per sample
+		 */
+		List<byte[]> sources = new ArrayList<>(samples);
+		Map<Long, Gram> grams = new HashMap<>();
+		Set<Long> seen = new HashSet<>();
+		for (int s = 0; s < sources.size(); s++) {
+			byte[] sample = sources.get(s);
+			seen.clear();
+			for (int p = 0; p + GRAM_SIZE <= sample.length; p++) {
+				Long key = pack(sample, p);
+				if (seen.add(key)) {
+					Gram gram = grams.get(key);
+					if (gram == null) {
+						gram = new Gram(s, p);
+						grams.put(key, gram);
+					}
+					gram.count++;
+				}
+			}
+		}
+		
+		/*
+		 * Most frequent first, then by first occurrence
+		 */
+		List<Map.Entry<Long, Gram>> frequent = new ArrayList<>();
+		for (Map.Entry<Long, Gram> entry : grams.entrySet()) {
+			if (entry.getValue().count >= MIN_SAMPLES) {
+				frequent.add(entry);
+			}
+		}
+		frequent.sort((a, b) -> {
+			Gram x = a.getValue();
+			Gram y = b.getValue();
+			if (x.count != y.count) {
+				return Integer.compare(y.count, x.count);
+			}
+			return x.sample != y.sample ? Integer.compare(x.sample, y.sample) : Integer.compare(x.position, y.position);
+		});
+		
+		/*
+		 * Extend each sequence to the right while the next ones are frequent
+		 */
+		List<byte[]> segments = new ArrayList<>();
+		Set<Long> used = new HashSet<>();
+		int total = 0;
+		for (Map.Entry<Long, Gram> entry : frequent) {
+			if (total >= size) {
+				break;
+			}
+			if (!used.add(entry.getKey())) {
+				continue;
+			}
+			Gram gram = entry.getValue();
+			byte[] sample = sources.get(gram.sample);
+			int end = gram.position + GRAM_SIZE;
+			while (end < sample.length && total + end - gram.position < size) {
+				Long next = pack(sample, end + 1 - GRAM_SIZE);
+				Gram nextGram = grams.get(next);
+				if (nextGram == null || nextGram.count < MIN_SAMPLES || !used.add(next)) {
+					break;
+				}
+				end++;
+			}
+			int length = Math.min(end - gram.position, size - total);
+			byte[] segment = new byte[length];
+			System.arraycopy(sample, gram.position, segment, 0, length);
+			segments.add(segment);
+			total += length;
+		}
+		
+		/*
+		 * Most frequent at the end
+		 */
+		ByteArrayOutputStream dictionary = new ByteArrayOutputStream(total);
+		for (int i = segments.size() - 1; i >= 0; i--) {
+			dictionary.write(segments.get(i), 0, segments.get(i).length);
+		}
+		return dictionary.toByteArray();
+	}
+	
+	/**
+	 * Compute the identifier of the given dictionary.
+	 * @param dictionary preset
+	 * @return Adler-32 checksum
+	 */
+	static int getId(byte[] dictionary) {
+		Adler32 adler = new Adler32();
+		adler.update(dictionary, 0, dictionary.length);
+		return (int) adler.getValue();
+	}
+	
+	/**
+	 * Register the given dictionary for decompression,
+	 * keeping the dictionary already registered with the same identifier.
+	 * @param dictionary preset
+	 * @return identifier
+	 * @throws IllegalArgumentException if another dictionary has the same identifier
+	 */
+	static int register(byte[] dictionary) {
+		int id = getId(dictionary);
+		byte[] registered = DICTIONARIES.putIfAbsent(id, dictionary.clone());
+		
+		/*
+		 * Prevent replacing the dictionary of already compressed data
+		 */
+		if (registered != null && !Arrays.equals(registered, dictionary)) {
+			throw new IllegalArgumentException(COLLISION_ERROR);
+		}
+		return id;
+	}
+	
+	/**
+	 * Give the registered dictionary expected by the given Inflater.
+	 * @param inflater which needs a dictionary
+	 * @throws DataFormatException if the dictionary is not registered
+	 */
+	static void setDictionary(Inflater inflater) throws DataFormatException {
+		byte[] dictionary = DICTIONARIES.get(inflater.getAdler());
+		if (dictionary == null) {
+			throw new DataFormatException(DICTIONARY_ERROR);
+		}
+		inflater.setDictionary(dictionary);
+	}
+
+}
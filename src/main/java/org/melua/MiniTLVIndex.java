@@ -0,0 +1,298 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.TLV_MINSIZE;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Open addressing table from integer type
+ * to value position and length, built in a single pass
+ * without boxing. The first occurrence of a type is kept.
+ *
+ */
+final class MiniTLVIndex {
+	
+	private static final int MIN_CAPACITY = 16;
+	private static final long EMPTY = -1L;
+	private static final int GOLDEN_RATIO = 0x9E3779B9;
+	
+	/*
+	 * Kinds of indexed values
+	 */
+	static final byte PLAIN = 0;
+	static final byte COMPRESSED = 1;
+	static final byte ENCRYPTED = 2;
+	
+	private int[] keys;
+	private long[] positions;
+	private int[] lengths;
+	private byte[] kinds;
+	private int[] order;
+	private int size;
+	private int encrypted;
+	private int mask;
+	
+	MiniTLVIndex(int expected) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expected * 2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+		this.order = new int[capacity / 2];
+	}
+	
+	/**
+	 * Scan the given buffer once, from its position to its limit,
+	 * and index every value by its absolute position in the buffer.
+	 * @param buffer to scan, whose position is left unchanged
+	 * @return index
+	 * @throws StreamCorruptedException
+	 */
+	static MiniTLVIndex scan(ByteBuffer buffer) throws StreamCorruptedException {
+		return new MiniTLVIndex(MIN_CAPACITY).rescan(buffer);
+	}
+	
+	/**
+	 * Clear this index, then scan the given buffer as {@link #scan(ByteBuffer)} does,
+	 * keeping the allocated table.
+	 * @param buffer to scan, whose position is left unchanged
+	 * @return this index
+	 * @throws StreamCorruptedException
+	 */
+	MiniTLVIndex rescan(ByteBuffer buffer) throws StreamCorruptedException {
+		clear();
+		ByteBuffer cursor = buffer.duplicate();
+		
+		while (cursor.remaining() >= TLV_MINSIZE) {
+			
+			/*
+			 * Read 1st byte or next 2, 4-bytes if extended
+			 */
+			int type = MiniTLVParser.getInt(cursor);
+			
+			/*
+			 * Read 1st byte or next 2, 4-bytes if extended
+			 */
+			int length = MiniTLVParser.getInt(cursor);
+			
+			/*
+			 * Stop on truncated value
+			 */
+			if (length < 0 || cursor.remaining() < length) {
+				break;
+			}
+			
+			/*
+			 * Index and skip value
+			 */
+			if (type == MiniTLV.COMPRESSED_TYPE || type == MiniTLV.ENCRYPTED_TYPE) {
+				
+				/*
+				 * Index wrapped value by its inner type
+				 */
+				ByteBuffer wrapped = cursor.duplicate();
+				wrapped.limit(cursor.position() + length);
+				int innerType = MiniTLVParser.getInt(wrapped);
+				add(innerType, wrapped.position(), wrapped.remaining(), type == MiniTLV.COMPRESSED_TYPE ? COMPRESSED : ENCRYPTED);
+			} else {
+				add(type, cursor.position(), length);
+			}
+			cursor.position(cursor.position() + length);
+		}
+		return this;
+	}
+	
+	/**
+	 * Remove every type, touching only the used slots.
+	 */
+	void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.positions[this.order[i]] = EMPTY;
+		}
+		this.size = 0;
+		this.encrypted = 0;
+	}
+	
+	private void allocate(int capacity) {
+		this.keys = new int[capacity];
+		this.positions = new long[capacity];
+		this.lengths = new int[capacity];
+		this.kinds = new byte[capacity];
+		this.mask = capacity - 1;
+		Arrays.fill(this.positions, EMPTY);
+	}
+	
+	private int hash(int type) {
+		int hash = type * GOLDEN_RATIO;
+		return (hash ^ hash >>> 16) & this.mask;
+	}
+	
+	/**
+	 * Add the value position and length for the given type,
+	 * unless the type is already indexed.
+	 * @param type of the value
+	 * @param position of the value
+	 * @param length of the value
+	 * @return true if added
+	 */
+	boolean add(int type, long position, int length) {
+		return add(type, position, length, PLAIN);
+	}
+	
+	/**
+	 * Add the value position, length and kind for the given type,
+	 * unless the type is already indexed.
+	 * @param type of the value
+	 * @param position of the value
+	 * @param length of the value
+	 * @param kind of the value
+	 * @return true if added
+	 */
+	boolean add(int type, long position, int length, byte kind) {
+		int slot = hash(type);
+		while (this.positions[slot] != EMPTY) {
+			if (this.keys[slot] == type) {
+				return false;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		
+		this.keys[slot] = type;
+		this.positions[slot] = position;
+		this.lengths[slot] = length;
+		this.kinds[slot] = kind;
+		this.order[this.size++] = slot;
+		if (kind == ENCRYPTED) {
+			this.encrypted++;
+		}
+		
+		/*
+		 * Keep the table at most half full
+		 */
+		if (this.size == this.order.length) {
+			grow();
+		}
+		return true;
+	}
+	
+	/**
+	 * Add or replace the value position and length for the given type.
+	 * @param type of the value
+	 * @param position of the value
+	 * @param length of the value
+	 */
+	void put(int type, long position, int length) {
+		int slot = find(type);
+		if (slot < 0) {
+			add(type, position, length);
+		} else {
+			this.positions[slot] = position;
+			this.lengths[slot] = length;
+			if (this.kinds[slot] == ENCRYPTED) {
+				this.encrypted--;
+			}
+			this.kinds[slot] = PLAIN;
+		}
+	}
+	
+	private void grow() {
+		int[] oldKeys = this.keys;
+		long[] oldPositions = this.positions;
+		int[] oldLengths = this.lengths;
+		byte[] oldKinds = this.kinds;
+		int[] oldOrder = this.order;
+		
+		allocate(oldKeys.length * 2);
+		this.order = new int[oldOrder.length * 2];
+		
+		for (int i = 0; i < this.size; i++) {
+			int oldSlot = oldOrder[i];
+			int slot = hash(oldKeys[oldSlot]);
+			while (this.positions[slot] != EMPTY) {
+				slot = (slot + 1) & this.mask;
+			}
+			this.keys[slot] = oldKeys[oldSlot];
+			this.positions[slot] = oldPositions[oldSlot];
+			this.lengths[slot] = oldLengths[oldSlot];
+			this.kinds[slot] = oldKinds[oldSlot];
+			this.order[i] = slot;
+		}
+	}
+	
+	/**
+	 * Find the slot of the given type.
+	 * @param type to search for
+	 * @return slot, or -1 if not indexed
+	 */
+	int find(int type) {
+		int slot = hash(type);
+		while (this.positions[slot] != EMPTY) {
+			if (this.keys[slot] == type) {
+				return slot;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		return -1;
+	}
+	
+	int size() {
+		return this.size;
+	}
+	
+	int capacity() {
+		return this.keys.length;
+	}
+	
+	/**
+	 * Retrieve the slot of the n-th indexed type,
+	 * in reading order.
+	 * @param n from 0 to {@link #size()}
+	 * @return slot
+	 */
+	int slot(int n) {
+		return this.order[n];
+	}
+	
+	int type(int slot) {
+		return this.keys[slot];
+	}
+	
+	long position(int slot) {
+		return this.positions[slot];
+	}
+	
+	int length(int slot) {
+		return this.lengths[slot];
+	}
+	
+	/**
+	 * Retrieve the number of types whose value is encrypted.
+	 * @return count
+	 */
+	int encrypted() {
+		return this.encrypted;
+	}
+	
+	byte kind(int slot) {
+		return this.kinds[slot];
+	}
+
+}
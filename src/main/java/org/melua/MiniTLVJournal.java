@@ -0,0 +1,500 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.BYTE_SIZE;
+import static org.melua.MiniTLV.INPUT_ERROR;
+import static org.melua.MiniTLV.INT_SIZE;
+import static org.melua.MiniTLV.SHORT_SIZE;
+import static org.melua.MiniTLV.TLV_MINSIZE;
+import static org.melua.MiniTLV.TYPE_ERROR;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.melua.api.Converter;
+import org.melua.api.Journal;
+
+/**
+ * Append-only journal of Type-Length-Value records.
+ * Records are appended to segment files, and each segment has a sidecar
+ * index file of fixed-size entries (type, value position, value length),
+ * so that reopening reads the index files instead of every segment.
+ * Index entries are only written once their records are forced to the
+ * storage device, so an index never refers to lost records.
+ * Only the appended segment stays open, older ones being opened again to be read.
+ * Any other *.tlv file in the directory is refused when the journal is opened.
+ *
+ */
+public class MiniTLVJournal implements Journal {
+	
+	private static final String SEGMENT_FORMAT = "%010d.tlv";
+	private static final String INDEX_FORMAT = "%010d.idx";
+	private static final String SEGMENT_GLOB = "*.tlv";
+	private static final Pattern SEGMENT_PATTERN = Pattern.compile("\\d{10,18}\\.tlv");
+	
+	/*
+	 * Type, value position and value length
+	 */
+	private static final int ENTRY_SIZE = INT_SIZE * 3;
+	
+	private final Converter converter;
+	private final Path directory;
+	private final int segmentSize;
+	private final int syncEvery;
+	
+	/*
+	 * Segments, oldest first, the last one being appended
+	 */
+	private int segments;
+	private long firstSegment;
+	private long currentSize;
+	private FileChannel current;
+	private FileChannel index;
+	
+	/*
+	 * Older segment last read, kept open for the next reads
+	 */
+	private FileChannel reader;
+	private int readerSegment = -1;
+	private ByteBuffer pendingEntries = ByteBuffer.allocate(ENTRY_SIZE * 64);
+	private int pendingRecords;
+	private ByteBuffer buffer = ByteBuffer.allocate(256);
+	
+	/*
+	 * Latest record of each type, chained to the previous records of the same type
+	 */
+	private final MiniTLVIndex latest = new MiniTLVIndex(0);
+	private int[] previous = new int[64];
+	private long[] locations = new long[64];
+	private int[] lengths = new int[64];
+	private int size;
+	
+	protected MiniTLVJournal(Path directory, int segmentSize, int syncEvery, Converter converter) throws IOException {
+		
+		/*
+		 * Prevent bad policy
+		 */
+		if (segmentSize < TLV_MINSIZE || syncEvery < 0) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		this.converter = converter;
+		this.directory = Files.createDirectories(directory);
+		this.segmentSize = segmentSize;
+		this.syncEvery = syncEvery;
+		
+		List<Long> numbers = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, SEGMENT_GLOB)) {
+			for (Path path : stream) {
+				numbers.add(segmentNumber(path));
+			}
+		}
+		Collections.sort(numbers);
+		
+		try {
+			if (numbers.isEmpty()) {
+				open(0);
+			} else {
+				this.firstSegment = numbers.get(0);
+				for (int i = 0; i < numbers.size(); i++) {
+					
+					/*
+					 * Prevent reading past a missing segment
+					 */
+					if (numbers.get(i) != this.firstSegment + i) {
+						throw new NoSuchFileException(segmentPath(i).toString());
+					}
+					recover(i, i == numbers.size() - 1);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+	
+	private static long segmentNumber(Path path) throws FileSystemException {
+		String name = path.getFileName().toString();
+		
+		/*
+		 * Prevent opening a directory holding other files
+		 */
+		if (!SEGMENT_PATTERN.matcher(name).matches()) {
+			throw new FileSystemException(path.toString(), null, INPUT_ERROR);
+		}
+		return Long.parseLong(name.substring(0, name.indexOf('.')));
+	}
+	
+	private Path segmentPath(int segment) {
+		return this.directory.resolve(String.format(SEGMENT_FORMAT, this.firstSegment + segment));
+	}
+	
+	private Path indexPath(int segment) {
+		return this.directory.resolve(String.format(INDEX_FORMAT, this.firstSegment + segment));
+	}
+	
+	/**
+	 * Create the given segment and its index, and append to them.
+	 * @param segment number from the first segment
+	 * @throws IOException
+	 */
+	private void open(int segment) throws IOException {
+		this.current = FileChannel.open(segmentPath(segment),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.segments = segment + 1;
+		this.index = FileChannel.open(indexPath(segment),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		this.currentSize = 0;
+	}
+	
+	/**
+	 * Load the index of the given segment, then scan the records
+	 * appended after the last indexed one and index them.
+	 * The invalid tail of the last segment is truncated.
+	 * @param segment number from the first segment
+	 * @param last whether the segment is appended
+	 * @throws IOException
+	 */
+	private void recover(int segment, boolean last) throws IOException {
+		FileChannel data = last
+				? FileChannel.open(segmentPath(segment), StandardOpenOption.READ, StandardOpenOption.WRITE)
+				: FileChannel.open(segmentPath(segment), StandardOpenOption.READ);
+		this.segments = segment + 1;
+		if (last) {
+			this.current = data;
+		}
+		try {
+			recover(segment, data, last);
+		} finally {
+			if (!last) {
+				data.close();
+			}
+		}
+	}
+	
+	/**
+	 * Recover the given open segment as {@link #recover(int, boolean)} does.
+	 * @param segment number from the first segment
+	 * @param data of the segment
+	 * @param last whether the segment is appended
+	 * @throws IOException
+	 */
+	private void recover(int segment, FileChannel data, boolean last) throws IOException {
+		long dataSize = data.size();
+		
+		/*
+		 * Load complete index entries pointing inside the segment
+		 */
+		FileChannel entries = FileChannel.open(indexPath(segment),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ByteBuffer loaded = ByteBuffer.allocate((int) (entries.size() / ENTRY_SIZE * ENTRY_SIZE));
+		while (loaded.hasRemaining()) {
+			if (entries.read(loaded) < 0) {
+				throw new EOFException();
+			}
+		}
+		loaded.flip();
+		
+		long end = 0;
+		while (loaded.remaining() >= ENTRY_SIZE) {
+			int type = loaded.getInt();
+			int position = loaded.getInt();
+			int length = loaded.getInt();
+			if (position < end || length < 0 || position + (long) length > dataSize) {
+				loaded.position(loaded.position() - ENTRY_SIZE);
+				break;
+			}
+			add(segment, type, position, length);
+			end = position + (long) length;
+		}
+		entries.truncate(loaded.position());
+		entries.position(loaded.position());
+		
+		/*
+		 * Index records missing from the index, up to the first incomplete one
+		 */
+		if (end < dataSize) {
+			ByteBuffer tail = data.map(MapMode.READ_ONLY, end, dataSize - end);
+			ByteBuffer missing = ByteBuffer.allocate(ENTRY_SIZE * 64);
+			while (tail.remaining() >= TLV_MINSIZE) {
+				int start = tail.position();
+				int type;
+				int length;
+				try {
+					type = MiniTLVParser.getInt(tail);
+					length = MiniTLVParser.getInt(tail);
+				} catch (StreamCorruptedException e) {
+					tail.position(start);
+					break;
+				}
+				if (length < 0 || tail.remaining() < length) {
+					tail.position(start);
+					break;
+				}
+				int position = (int) (end + tail.position());
+				add(segment, type, position, length);
+				if (!missing.hasRemaining()) {
+					missing = grow(missing);
+				}
+				missing.putInt(type).putInt(position).putInt(length);
+				tail.position(tail.position() + length);
+			}
+			
+			missing.flip();
+			while (missing.hasRemaining()) {
+				entries.write(missing);
+			}
+			entries.force(false);
+			
+			end += tail.position();
+			if (last && end < dataSize) {
+				data.truncate(end);
+			}
+		}
+		
+		if (last) {
+			this.index = entries;
+			this.currentSize = end;
+		} else {
+			entries.close();
+		}
+	}
+	
+	private static ByteBuffer grow(ByteBuffer buffer) {
+		ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+		buffer.flip();
+		larger.put(buffer);
+		return larger;
+	}
+	
+	/**
+	 * Keep the location of the given record in memory.
+	 * @param segment number from the first segment
+	 * @param type of the value
+	 * @param position of the value in the segment
+	 * @param length of the value
+	 */
+	private void add(int segment, int type, int position, int length) {
+		if (this.size == this.locations.length) {
+			int capacity = this.size * 2;
+			this.previous = Arrays.copyOf(this.previous, capacity);
+			this.locations = Arrays.copyOf(this.locations, capacity);
+			this.lengths = Arrays.copyOf(this.lengths, capacity);
+		}
+		
+		int slot = this.latest.find(type);
+		this.previous[this.size] = slot < 0 ? -1 : (int) this.latest.position(slot);
+		this.locations[this.size] = (long) segment << Integer.SIZE | position;
+		this.lengths[this.size] = length;
+		this.latest.put(type, this.size, length);
+		this.size++;
+	}
+	
+	/**
+	 * Close the current segment and start the next one.
+	 * @throws IOException
+	 */
+	private void roll() throws IOException {
+		sync();
+		this.index.close();
+		this.current.close();
+		open(this.segments);
+	}
+	
+	@Override
+	public synchronized Journal append(byte[] value, byte... type) throws IOException {
+		MiniTLVSerializer.checkType(type);
+		int recordSize = MiniTLVSerializer.getSize(value, type);
+		
+		/*
+		 * Prevent a record larger than a segment
+		 */
+		if (recordSize > this.segmentSize) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		/*
+		 * Roll before overflowing a non-empty segment
+		 */
+		if (this.currentSize > 0 && this.currentSize + recordSize > this.segmentSize) {
+			roll();
+		}
+		
+		if (this.buffer.capacity() < recordSize) {
+			this.buffer = ByteBuffer.allocate(Math.max(recordSize, this.buffer.capacity() * 2));
+		}
+		this.buffer.clear();
+		MiniTLVSerializer.serialize(this.buffer, value, type);
+		this.buffer.flip();
+		
+		/*
+		 * Append the record
+		 */
+		long position = this.currentSize;
+		while (this.buffer.hasRemaining()) {
+			position += this.current.write(this.buffer, position);
+		}
+		
+		/*
+		 * Keep its index entry until the next sync
+		 */
+		int valuePosition = (int) (position - value.length);
+		int givenType = this.converter.convertToInt(type);
+		add(this.segments - 1, givenType, valuePosition, value.length);
+		if (!this.pendingEntries.hasRemaining()) {
+			this.pendingEntries = grow(this.pendingEntries);
+		}
+		this.pendingEntries.putInt(givenType).putInt(valuePosition).putInt(value.length);
+		this.currentSize = position;
+		
+		if (++this.pendingRecords == this.syncEvery) {
+			sync();
+		}
+		return this;
+	}
+	
+	/**
+	 * Retrieve the channel of the given segment,
+	 * opening an older segment again and closing the one read before.
+	 * @param segment number from the first segment
+	 * @return open channel
+	 * @throws IOException
+	 */
+	private FileChannel segment(int segment) throws IOException {
+		if (segment == this.segments - 1) {
+			return this.current;
+		}
+		if (segment != this.readerSegment) {
+			if (this.reader != null) {
+				this.reader.close();
+				this.reader = null;
+			}
+			this.reader = FileChannel.open(segmentPath(segment), StandardOpenOption.READ);
+			this.readerSegment = segment;
+		}
+		return this.reader;
+	}
+	
+	private byte[] readRecord(int record) throws IOException {
+		FileChannel data = segment((int) (this.locations[record] >>> Integer.SIZE));
+		long position = this.locations[record] & 0xffffffffL;
+		ByteBuffer value = ByteBuffer.allocate(this.lengths[record]);
+		while (value.hasRemaining()) {
+			int read = data.read(value, position + value.position());
+			if (read < 0) {
+				throw new EOFException();
+			}
+		}
+		return value.array();
+	}
+	
+	private int find(byte... type) {
+		
+		/*
+		 * Prevent bad type
+		 */
+		if (type.length != BYTE_SIZE && type.length != SHORT_SIZE && type.length != INT_SIZE) {
+			throw new IllegalArgumentException(TYPE_ERROR);
+		}
+		
+		int slot = this.latest.find(this.converter.convertToInt(type));
+		return slot < 0 ? -1 : (int) this.latest.position(slot);
+	}
+	
+	@Override
+	public synchronized byte[] read(byte... type) throws IOException {
+		int record = find(type);
+		return record < 0 ? null : readRecord(record);
+	}
+	
+	@Override
+	public synchronized List<byte[]> readAll(byte... type) throws IOException {
+		List<byte[]> values = new ArrayList<>();
+		for (int record = find(type); record >= 0; record = this.previous[record]) {
+			values.add(readRecord(record));
+		}
+		Collections.reverse(values);
+		return values;
+	}
+	
+	@Override
+	public synchronized int size() {
+		return this.size;
+	}
+	
+	@Override
+	public synchronized void sync() throws IOException {
+		if (this.pendingRecords == 0) {
+			return;
+		}
+		
+		/*
+		 * Records first, so that no entry refers to a lost record
+		 */
+		this.current.force(false);
+		
+		this.pendingEntries.flip();
+		while (this.pendingEntries.hasRemaining()) {
+			this.index.write(this.pendingEntries);
+		}
+		this.pendingEntries.clear();
+		this.index.force(false);
+		this.pendingRecords = 0;
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			if (this.index != null && this.index.isOpen()) {
+				sync();
+				this.index.close();
+			}
+		} finally {
+			try {
+				if (this.current != null) {
+					this.current.close();
+				}
+			} finally {
+				if (this.reader != null) {
+					this.reader.close();
+				}
+			}
+		}
+	}
+	
+	@Override
+	public Converter getConverter() {
+		return this.converter;
+	}
+
+}
@@ -0,0 +1,177 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.security.GeneralSecurityException;
+import java.security.spec.KeySpec;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Bounded cache of PBKDF2 derived keys by secret and salt,
+ * evicting the least recently used key and zeroing it.
+ *
+ */
+final class MiniTLVKeys {
+	
+	static final String AES_ALGORITHM = "AES";
+	
+	private static final int PBKDF2_ITERATIONS = 10_000;
+	private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA1";
+	
+	private static final int MAX_KEYS = 256;
+	
+	private static final ThreadLocal<SecretKeyFactory> FACTORIES = new ThreadLocal<>();
+	
+	private static final Map<Derivation, byte[]> KEYS = new LinkedHashMap<Derivation, byte[]>(MAX_KEYS, 0.75f, true) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Derivation, byte[]> eldest) {
+			if (size() > MAX_KEYS) {
+				Arrays.fill(eldest.getValue(), (byte) 0);
+				return true;
+			}
+			return false;
+		}
+	};
+	
+	private MiniTLVKeys() {
+	}
+	
+	/**
+	 * Secret, salt and key length of a derived key.
+	 */
+	private static final class Derivation {
+		private final String secret;
+		private final byte[] salt;
+		private final int keyLength;
+		
+		private Derivation(String secret, byte[] salt, int keyLength) {
+			this.secret = secret;
+			this.salt = salt.clone();
+			this.keyLength = keyLength;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Derivation)) {
+				return false;
+			}
+			Derivation other = (Derivation) obj;
+			return this.keyLength == other.keyLength
+					&& this.secret.equals(other.secret)
+					&& Arrays.equals(this.salt, other.salt);
+		}
+		
+		@Override
+		public int hashCode() {
+			return (this.secret.hashCode() * 31 + Arrays.hashCode(this.salt)) * 31 + this.keyLength;
+		}
+	}
+	
+	/**
+	 * Computes the PBKDF2 hash.
+	 *
+	 * @param secret the password to hash
+	 * @param salt the salt
+	 * @param keyLength in bytes
+	 * @return the PBDKF2 hash of the password
+	 * @throws GeneralSecurityException
+	 */
+	private static byte[] pbkdf2(String secret, byte[] salt, int keyLength) throws GeneralSecurityException {
+		KeySpec spec = new PBEKeySpec(secret.toCharArray(), salt, PBKDF2_ITERATIONS, keyLength * Byte.SIZE);
+		
+		/*
+		 * Reuse the factory of the current thread
+		 */
+		SecretKeyFactory factory = FACTORIES.get();
+		if (factory == null) {
+			factory = SecretKeyFactory.getInstance(PBKDF2_ALGORITHM);
+			FACTORIES.set(factory);
+		}
+		return factory.generateSecret(spec).getEncoded();
+	}
+	
+	/**
+	 * Retrieve the AES key derived from the given secret and salt,
+	 * running PBKDF2 only if it is not cached.
+	 * @param secret the password
+	 * @param salt the salt
+	 * @param keyLength in bytes
+	 * @return AES key
+	 * @throws GeneralSecurityException
+	 */
+	static SecretKeySpec derive(String secret, byte[] salt, int keyLength) throws GeneralSecurityException {
+		Derivation entry = new Derivation(secret, salt, keyLength);
+		synchronized (KEYS) {
+			byte[] key = KEYS.get(entry);
+			if (key != null) {
+				return new SecretKeySpec(key, AES_ALGORITHM);
+			}
+		}
+		
+		/*
+		 * Derive outside the lock, the key spec keeps its own copy
+		 */
+		byte[] key = pbkdf2(secret, salt, keyLength);
+		SecretKeySpec spec = new SecretKeySpec(key, AES_ALGORITHM);
+		synchronized (KEYS) {
+			if (KEYS.putIfAbsent(entry, key) != null) {
+				Arrays.fill(key, (byte) 0);
+			}
+		}
+		return spec;
+	}
+	
+	/**
+	 * Derive the AES key of a fresh random salt, without caching it,
+	 * since such a key is never derived again to encrypt.
+	 * @param secret the password
+	 * @param salt the salt
+	 * @param keyLength in bytes
+	 * @return AES key
+	 * @throws GeneralSecurityException
+	 */
+	static SecretKeySpec deriveOnce(String secret, byte[] salt, int keyLength) throws GeneralSecurityException {
+		byte[] key = pbkdf2(secret, salt, keyLength);
+		try {
+			return new SecretKeySpec(key, AES_ALGORITHM);
+		} finally {
+			Arrays.fill(key, (byte) 0);
+		}
+	}
+	
+	/**
+	 * Zero and remove every cached key.
+	 */
+	static void clear() {
+		synchronized (KEYS) {
+			for (byte[] key : KEYS.values()) {
+				Arrays.fill(key, (byte) 0);
+			}
+			KEYS.clear();
+		}
+	}
+
+}
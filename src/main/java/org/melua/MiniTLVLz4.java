@@ -0,0 +1,258 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.INPUT_ERROR;
+import static org.melua.MiniTLV.INT_SIZE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+
+/**
+ * Pure Java compressor for the LZ4 block format,
+ * preceded by the decompressed length on 4 bytes
+ * in {@link java.nio.ByteOrder#BIG_ENDIAN BIG_ENDIAN} order.
+ * Matches are found with a single-entry hash table of 4-bytes sequences.
+ *
+ */
+final class MiniTLVLz4 {
+	
+	private static final int MIN_MATCH = 4;
+	private static final int MAX_OFFSET = 65_535;
+	
+	/*
+	 * The last match starts at least 12 bytes before the end,
+	 * and the last 5 bytes are always literals
+	 */
+	private static final int MATCH_LIMIT = 12;
+	private static final int LAST_LITERALS = 5;
+	
+	private static final int HASH_BITS = 12;
+	private static final int HASH_MULTIPLIER = -1_640_531_535;
+	
+	private static final int RUN_MASK = 0x0f;
+	private static final int UBYTE_MAXVALUE = 255;
+	
+	private MiniTLVLz4() {
+	}
+	
+	private static int readInt(byte[] data, int offset) {
+		return (data[offset] & 0xff)
+				| (data[offset + 1] & 0xff) << 8
+				| (data[offset + 2] & 0xff) << 16
+				| (data[offset + 3] & 0xff) << 24;
+	}
+	
+	/**
+	 * Compress the given bytes.
+	 * @param data to compress
+	 * @param offset of the first byte
+	 * @param length number of bytes
+	 * @param output to write compressed data
+	 * @throws IOException
+	 */
+	static void compress(byte[] data, int offset, int length, OutputStream output) throws IOException {
+		
+		/*
+		 * Worst case is one extra byte every 255 literals
+		 */
+		byte[] block = new byte[INT_SIZE + length + length / UBYTE_MAXVALUE + 16];
+		int cursor = 0;
+		for (int shift = 24; shift >= 0; shift -= Byte.SIZE) {
+			block[cursor++] = (byte) (length >>> shift);
+		}
+		
+		int end = offset + length;
+		int anchor = offset;
+		if (length > MATCH_LIMIT) {
+			int[] table = new int[1 << HASH_BITS];
+			int limit = end - MATCH_LIMIT;
+			int position = offset;
+			
+			while (position < limit) {
+				int sequence = readInt(data, position);
+				int hash = sequence * HASH_MULTIPLIER >>> (Integer.SIZE - HASH_BITS);
+				
+				/*
+				 * Table holds positions plus one, zero is empty
+				 */
+				int reference = table[hash] - 1;
+				table[hash] = position + 1;
+				
+				if (reference < offset || position - reference > MAX_OFFSET || readInt(data, reference) != sequence) {
+					position++;
+					continue;
+				}
+				
+				/*
+				 * Extend the match up to the last literals
+				 */
+				int matchLength = MIN_MATCH;
+				while (position + matchLength < end - LAST_LITERALS && data[reference + matchLength] == data[position + matchLength]) {
+					matchLength++;
+				}
+				
+				cursor = writeSequence(block, cursor, data, anchor, position - anchor, position - reference, matchLength);
+				position += matchLength;
+				anchor = position;
+			}
+		}
+		
+		/*
+		 * Last literals without match
+		 */
+		cursor = writeSequence(block, cursor, data, anchor, end - anchor, 0, 0);
+		output.write(block, 0, cursor);
+	}
+	
+	private static int writeSequence(byte[] block, int cursor, byte[] data, int literals, int literalLength, int matchOffset, int matchLength) {
+		int token = cursor++;
+		int matchRun = matchLength - MIN_MATCH;
+		block[token] = (byte) (Math.min(literalLength, RUN_MASK) << 4 | (matchLength == 0 ? 0 : Math.min(matchRun, RUN_MASK)));
+		
+		cursor = writeRun(block, cursor, literalLength);
+		System.arraycopy(data, literals, block, cursor, literalLength);
+		cursor += literalLength;
+		
+		if (matchLength != 0) {
+			block[cursor++] = (byte) matchOffset;
+			block[cursor++] = (byte) (matchOffset >>> 8);
+			cursor = writeRun(block, cursor, matchRun);
+		}
+		return cursor;
+	}
+	
+	private static int writeRun(byte[] block, int cursor, int run) {
+		if (run >= RUN_MASK) {
+			int remaining = run - RUN_MASK;
+			for (; remaining >= UBYTE_MAXVALUE; remaining -= UBYTE_MAXVALUE) {
+				block[cursor++] = (byte) UBYTE_MAXVALUE;
+			}
+			block[cursor++] = (byte) remaining;
+		}
+		return cursor;
+	}
+	
+	/**
+	 * Decompress the given bytes.
+	 * @param data to decompress
+	 * @param offset of the first byte
+	 * @param length number of bytes
+	 * @return decompressed data
+	 * @throws DataFormatException
+	 */
+	static byte[] decompress(byte[] data, int offset, int length) throws DataFormatException {
+		if (length < INT_SIZE + 1) {
+			throw new DataFormatException(INPUT_ERROR);
+		}
+		
+		int size = 0;
+		for (int i = offset; i < offset + INT_SIZE; i++) {
+			size = size << Byte.SIZE | data[i] & 0xff;
+		}
+		
+		/*
+		 * Prevent allocating more than the input can expand to
+		 */
+		if (size < 0 || size > (long) (length - INT_SIZE) * UBYTE_MAXVALUE) {
+			throw new DataFormatException(INPUT_ERROR);
+		}
+		
+		byte[] result = new byte[size];
+		int cursor = offset + INT_SIZE;
+		int end = offset + length;
+		int position = 0;
+		while (true) {
+			int token = data[cursor++] & 0xff;
+			
+			/*
+			 * Copy literals
+			 */
+			int literalLength = token >>> 4;
+			if (literalLength == RUN_MASK) {
+				int b;
+				do {
+					if (cursor == end || literalLength > size) {
+						throw new DataFormatException(INPUT_ERROR);
+					}
+					b = data[cursor++] & 0xff;
+					literalLength += b;
+				} while (b == UBYTE_MAXVALUE);
+			}
+			if (literalLength < 0 || literalLength > end - cursor || literalLength > size - position) {
+				throw new DataFormatException(INPUT_ERROR);
+			}
+			System.arraycopy(data, cursor, result, position, literalLength);
+			cursor += literalLength;
+			position += literalLength;
+			
+			/*
+			 * Last sequence has no match
+			 */
+			if (cursor == end) {
+				break;
+			}
+			
+			/*
+			 * Copy match, possibly overlapping
+			 */
+			if (end - cursor < 2) {
+				throw new DataFormatException(INPUT_ERROR);
+			}
+			int matchOffset = (data[cursor] & 0xff) | (data[cursor + 1] & 0xff) << 8;
+			cursor += 2;
+			int matchLength = token & RUN_MASK;
+			if (matchLength == RUN_MASK) {
+				int b;
+				do {
+					if (cursor == end || matchLength > size) {
+						throw new DataFormatException(INPUT_ERROR);
+					}
+					b = data[cursor++] & 0xff;
+					matchLength += b;
+				} while (b == UBYTE_MAXVALUE);
+			}
+			matchLength += MIN_MATCH;
+			if (matchLength < MIN_MATCH || matchOffset == 0 || matchOffset > position || matchLength > size - position) {
+				throw new DataFormatException(INPUT_ERROR);
+			}
+			int reference = position - matchOffset;
+			if (matchOffset >= matchLength) {
+				System.arraycopy(result, reference, result, position, matchLength);
+				position += matchLength;
+			} else {
+				for (int i = 0; i < matchLength; i++) {
+					result[position++] = result[reference + i];
+				}
+			}
+			
+			/*
+			 * Sequence ending on a match must be followed by another one
+			 */
+			if (cursor == end) {
+				throw new DataFormatException(INPUT_ERROR);
+			}
+		}
+		
+		if (position != size) {
+			throw new DataFormatException(INPUT_ERROR);
+		}
+		return result;
+	}
+
+}
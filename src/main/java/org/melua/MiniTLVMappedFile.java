@@ -0,0 +1,260 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.BYTE_SIZE;
+import static org.melua.MiniTLV.EXT_MAXSIZE;
+import static org.melua.MiniTLV.INPUT_ERROR;
+import static org.melua.MiniTLV.INT_SIZE;
+import static org.melua.MiniTLV.SHORT_SIZE;
+import static org.melua.MiniTLV.TLV_MINSIZE;
+import static org.melua.MiniTLV.TYPE_ERROR;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+
+import org.melua.api.Converter;
+import org.melua.api.IntObjConsumer;
+import org.melua.api.MappedFile;
+
+public class MiniTLVMappedFile implements MappedFile {
+	
+	/*
+	 * Files are mapped by segments of 1 GiB
+	 */
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+	
+	/*
+	 * Largest type and length with extended marks
+	 */
+	private static final int HEADER_MAXSIZE = (EXT_MAXSIZE + INT_SIZE) * 2;
+	
+	/*
+	 * Records are split into chunks of about 8 MiB for parallel reading
+	 */
+	private static final long CHUNK_SIZE = 1L << 23;
+	
+	private final Converter converter;
+	private final FileChannel channel;
+	private final long fileSize;
+	private final MappedByteBuffer[] segments;
+	private final MiniTLVIndex index;
+	
+	/*
+	 * Position of the first header of each chunk, then end of the last record
+	 */
+	private final long[] chunks;
+	
+	/**
+	 * Header being read, and position of its value
+	 */
+	private static final class Header {
+		private int type;
+		private int length;
+		private long position;
+	}
+	
+	protected MiniTLVMappedFile(Path path, Converter converter) throws IOException {
+		this.converter = converter;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			this.fileSize = this.channel.size();
+			
+			/*
+			 * Prevent bad TLV
+			 */
+			if (this.fileSize < TLV_MINSIZE) {
+				throw new IllegalArgumentException(INPUT_ERROR);
+			}
+			
+			/*
+			 * Map the whole file by segments
+			 */
+			this.segments = new MappedByteBuffer[(int) ((this.fileSize + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+			for (int i = 0; i < this.segments.length; i++) {
+				long offset = (long) i << SEGMENT_SHIFT;
+				this.segments[i] = this.channel.map(MapMode.READ_ONLY, offset, Math.min(SEGMENT_MASK + 1, this.fileSize - offset));
+			}
+			
+			/*
+			 * Index every value by its position in the file,
+			 * and keep record boundaries at each chunk
+			 */
+			this.index = new MiniTLVIndex(0);
+			Header header = new Header();
+			long[] boundaries = new long[(int) (this.fileSize / CHUNK_SIZE) + 2];
+			int count = 0;
+			long position = 0;
+			long next;
+			while ((next = readHeader(header, position)) >= 0) {
+				if (count == 0 || position - boundaries[count - 1] >= CHUNK_SIZE) {
+					boundaries[count++] = position;
+				}
+				this.index.add(header.type, header.position, header.length);
+				position = next;
+			}
+			boundaries[count++] = position;
+			this.chunks = Arrays.copyOf(boundaries, count);
+		} catch (IOException | RuntimeException e) {
+			this.channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Read the type and length at the given position,
+	 * even if they are split over two segments.
+	 * @param header to fill
+	 * @param position of the header
+	 * @return position of the next header, or -1 at the end of file
+	 * @throws IOException
+	 */
+	private long readHeader(Header current, long position) throws IOException {
+		if (this.fileSize - position < TLV_MINSIZE) {
+			return -1;
+		}
+		
+		ByteBuffer segment = this.segments[(int) (position >>> SEGMENT_SHIFT)];
+		int offset = (int) (position & SEGMENT_MASK);
+		ByteBuffer header;
+		if (segment.limit() - offset >= HEADER_MAXSIZE || segment.limit() == this.fileSize - (position - offset)) {
+			header = segment.duplicate();
+			header.position(offset);
+		} else {
+			
+			/*
+			 * Copy the few header bytes around the segment boundary
+			 */
+			header = ByteBuffer.allocate((int) Math.min(HEADER_MAXSIZE, this.fileSize - position));
+			while (header.hasRemaining()) {
+				header.put(getByte(position + header.position()));
+			}
+			header.flip();
+		}
+		
+		int start = header.position();
+		
+		/*
+		 * Read 1st byte or next 2, 4-bytes if extended
+		 */
+		current.type = MiniTLVParser.getInt(header);
+		
+		/*
+		 * Read 1st byte or next 2, 4-bytes if extended
+		 */
+		current.length = MiniTLVParser.getInt(header);
+		current.position = position + header.position() - start;
+		
+		/*
+		 * Stop on truncated value
+		 */
+		if (current.length < 0 || this.fileSize - current.position < current.length) {
+			return -1;
+		}
+		return current.position + current.length;
+	}
+	
+	private byte getByte(long position) {
+		return this.segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+	}
+	
+	/**
+	 * Slice the value at the given position, mapping
+	 * a dedicated region if it is split over two segments.
+	 * @param position of the value
+	 * @param length of the value
+	 * @return read-only slice
+	 * @throws IOException
+	 */
+	private ByteBuffer slice(long position, int length) throws IOException {
+		int first = (int) (position >>> SEGMENT_SHIFT);
+		int last = (int) ((position + length - 1) >>> SEGMENT_SHIFT);
+		if (length == 0 || first == last) {
+			ByteBuffer slice = this.segments[first].duplicate();
+			int offset = (int) (position & SEGMENT_MASK);
+			slice.limit(offset + length);
+			slice.position(offset);
+			return slice.slice().asReadOnlyBuffer();
+		}
+		return this.channel.map(MapMode.READ_ONLY, position, length).asReadOnlyBuffer();
+	}
+	
+	@Override
+	public int size() {
+		return this.index.size();
+	}
+	
+	@Override
+	public ByteBuffer slice(byte... type) throws IOException {
+		
+		/*
+		 * Prevent bad type
+		 */
+		if (type.length != BYTE_SIZE && type.length != SHORT_SIZE && type.length != INT_SIZE) {
+			throw new IllegalArgumentException(TYPE_ERROR);
+		}
+		
+		int slot = this.index.find(getConverter().convertToInt(type));
+		return slot < 0 ? null : slice(this.index.position(slot), this.index.length(slot));
+	}
+	
+	@Override
+	public void forEach(IntObjConsumer<ByteBuffer> consumer) throws IOException {
+		forEach(consumer, 0, this.chunks[this.chunks.length - 1]);
+	}
+	
+	@Override
+	public void forEachParallel(IntObjConsumer<ByteBuffer> consumer, ExecutorService executor) throws IOException {
+		MiniTLVBatch.run(this.chunks.length - 1, executor, (from, to) ->
+				forEach(consumer, this.chunks[from], this.chunks[to]));
+	}
+	
+	/**
+	 * Perform the given operation on each record
+	 * from the given header position to the given end.
+	 * @param consumer of type and value
+	 * @param position of the first header
+	 * @param end of the last record
+	 * @throws IOException
+	 */
+	private void forEach(IntObjConsumer<ByteBuffer> consumer, long position, long end) throws IOException {
+		Header header = new Header();
+		while (position < end) {
+			position = readHeader(header, position);
+			consumer.accept(header.type, slice(header.position, header.length));
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+	
+	@Override
+	public Converter getConverter() {
+		return this.converter;
+	}
+
+}
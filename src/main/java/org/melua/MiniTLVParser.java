@@ -23,60 +23,111 @@ import static org.melua.MiniTLV.SHORT_SIZE;
 import static org.melua.MiniTLV.TLV_MINSIZE;
 import static org.melua.MiniTLV.TYPE_ERROR;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StreamCorruptedException;
 import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import org.melua.api.Converter;
 import org.melua.api.Parser;
+import org.melua.api.RecordMap;
+import org.melua.api.Session;
 
 public class MiniTLVParser implements Parser {
 	
 	private final Converter converter;
 	private final ByteArrayOutputStream innerStream = new ByteArrayOutputStream();
+	private byte[] indexedTlv;
+	private MiniTLVIndex index;
+	private int cursor;
+	private Session session;
 	
 	protected MiniTLVParser(Converter converter) {
 		this.converter = converter;
 	}
 	
 	/**
-	 * Read the given stream and extract type and length
+	 * Read the given array from {@link #cursor} and extract type and length
 	 * according to the extra {@link #EXTENTED_BYTES}.
-	 * @param stream to read
-	 * @return byte array
-	 * @throws IOException
+	 * After two extra bytes the next 4 bytes are always read,
+	 * since a 4-bytes length may start with 0x00.
+	 * @param tlv to read
+	 * @return integer converted in place by the {@link Converter}
+	 * @throws StreamCorruptedException
+	 */
+	private int getInt(byte[] tlv) throws StreamCorruptedException {
+		return getInt(tlv, tlv.length);
+	}
+	
+	/**
+	 * Read the given array from {@link #cursor} up to the given limit,
+	 * as {@link #getInt(byte[])} does.
+	 * @param tlv to read
+	 * @param limit of the bytes to read
+	 * @return integer converted in place by the {@link Converter}
+	 * @throws StreamCorruptedException
+	 */
+	private int getInt(byte[] tlv, int limit) throws StreamCorruptedException {
+		for(int bytes = 1; limit - this.cursor >= bytes; bytes *= 2) {
+			if (tlv[this.cursor] != MiniTLV.EXTENTED_BYTES || bytes == INT_SIZE) {
+				int result = getConverter().readInt(tlv, this.cursor, bytes);
+				this.cursor += bytes;
+				return result;
+			}
+			this.cursor++;
+		}
+		throw new StreamCorruptedException();
+	}
+	
+	/**
+	 * Read the given buffer from its position and extract type or length
+	 * according to the extra {@link #EXTENTED_BYTES}, as {@link #getInt(byte[])} does.
+	 * @param buffer to read
+	 * @return integer in {@link java.nio.ByteOrder#BIG_ENDIAN BIG_ENDIAN} order
+	 * @throws StreamCorruptedException
 	 */
-	private static byte[] getBytes(DataInputStream stream) throws IOException {
-		reading:
-		for(int bytes = 1; stream.available() >= bytes; bytes *= 2) {
-			int input = stream.readByte();
-			if (input != MiniTLV.EXTENTED_BYTES) {
-				ByteBuffer buffer = ByteBuffer.allocate(INT_SIZE);
-				buffer.put((byte) input);
-				switch (bytes) {
-				default:
-					break reading;
-				case INT_SIZE:
-					buffer.putShort((short) stream.readShort());
-				case SHORT_SIZE:
-					buffer.put((byte) stream.readByte());
-				case BYTE_SIZE:
+	static int getInt(ByteBuffer buffer) throws StreamCorruptedException {
+		for(int bytes = 1; buffer.remaining() >= bytes; bytes *= 2) {
+			int input = buffer.get();
+			if (input != MiniTLV.EXTENTED_BYTES || bytes == INT_SIZE) {
+				int result = input & 0xff;
+				for (int i = 1; i < bytes; i++) {
+					result = result << Byte.SIZE | buffer.get() & 0xff;
 				}
-				
-				buffer.flip();
-				byte[] result = new byte[buffer.limit()];
-				buffer.get(result, 0, buffer.limit());
 				return result;
 			}
 		}
 		throw new StreamCorruptedException();
 	}
 	
+	/**
+	 * Decrypt the given wrapped value with the session, as a parser error if it fails.
+	 * @param tlv to read
+	 * @param type expected inner type
+	 * @param offset of the encrypted inner type and value
+	 * @param length of the encrypted inner type and value
+	 * @return decrypted value, or null without session
+	 * @throws StreamCorruptedException
+	 */
+	private byte[] unseal(byte[] tlv, int type, int offset, int length) throws StreamCorruptedException {
+		if (this.session == null) {
+			return null;
+		}
+		try {
+			return MiniTLVSession.unseal(this.session, type, ByteBuffer.wrap(tlv, offset, length));
+		} catch (GeneralSecurityException e) {
+			StreamCorruptedException exception = new StreamCorruptedException(e.getMessage());
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+	
 	@Override
 	public byte[] parse(byte... type) throws IOException {
 		
@@ -103,34 +154,67 @@ public class MiniTLVParser implements Parser {
 		 * Convert type byte array to integer
 		 */
 		int givenType = getConverter().convertToInt(type);
+		
+		/*
+		 * Lookup in offset table if indexed
+		 */
+		if (this.index != null) {
+			int slot = this.index.find(givenType);
+			if (slot < 0) {
+				return null;
+			}
+			int position = (int) this.index.position(slot);
+			if (this.index.kind(slot) == MiniTLVIndex.COMPRESSED) {
+				return MiniTLVCodecs.unwrap(this.indexedTlv, position, this.index.length(slot));
+			}
+			if (this.index.kind(slot) == MiniTLVIndex.ENCRYPTED) {
+				return unseal(this.indexedTlv, givenType, position, this.index.length(slot));
+			}
+			return Arrays.copyOfRange(this.indexedTlv, position, position + this.index.length(slot));
+		}
 
-		try (DataInputStream stream = new DataInputStream(new ByteArrayInputStream(tlv))) {
-
-			while(stream.available() >= TLV_MINSIZE) {
-				
-				/*
-				 * Read 1st byte or next 2, 4-bytes if extended
-				 */
-				int currentType = getConverter().convertToInt(getBytes(stream));
-				
-				/*
-				 * Read 1st byte or next 2, 4-bytes if extended
-				 */
-				int length = getConverter().convertToInt(getBytes(stream));
-				
-				/*
-				 * Read or skip value
-				 */
-				if (stream.available() >= length) {
-					if (currentType == givenType) {
-						byte[] value = new byte[length];
-						stream.readFully(value);
-						return value;
-					} else {
-						stream.skip(length);
-					}
-				}
+		this.cursor = 0;
+		while(tlv.length - this.cursor >= TLV_MINSIZE) {
+			
+			/*
+			 * Read 1st byte or next 2, 4-bytes if extended
+			 */
+			int currentType = getInt(tlv);
+			
+			/*
+			 * Read 1st byte or next 2, 4-bytes if extended
+			 */
+			int length = getInt(tlv);
+			
+			/*
+			 * Stop at a length beyond the bytes left
+			 */
+			if (length < 0 || tlv.length - this.cursor < length) {
+				break;
+			}
+			
+			/*
+			 * Read or skip value
+			 */
+			int end = this.cursor + length;
+			if (currentType == givenType) {
+				return Arrays.copyOfRange(tlv, this.cursor, end);
 			}
+			
+			/*
+			 * Decompress wrapped value of the given type
+			 */
+			if (currentType == MiniTLV.COMPRESSED_TYPE && getInt(tlv, end) == givenType) {
+				return MiniTLVCodecs.unwrap(tlv, this.cursor, end - this.cursor);
+			}
+			
+			/*
+			 * Decrypt wrapped value of the given type, missing without session
+			 */
+			if (currentType == MiniTLV.ENCRYPTED_TYPE && getInt(tlv, end) == givenType) {
+				return unseal(tlv, givenType, this.cursor, end - this.cursor);
+			}
+			this.cursor = end;
 		}
 
 		/*
@@ -156,41 +240,138 @@ public class MiniTLVParser implements Parser {
 
 		Map<Integer, byte[]> map = new HashMap<>();
 
-		try (DataInputStream stream = new DataInputStream(new ByteArrayInputStream(tlv))) {
+		this.cursor = 0;
+		while(tlv.length - this.cursor >= TLV_MINSIZE) {
 
-			while(stream.available() >= TLV_MINSIZE) {
+			/*
+			 * Read 1st byte or next 2, 4-bytes if extended
+			 */
+			int type = getInt(tlv);
 
-				/*
-				 * Read 1st byte or next 2, 4-bytes if extended
-				 */
-				int type = getConverter().convertToInt(getBytes(stream));
+			/*
+			 * Read 1st byte or next 2, 4-bytes if extended
+			 */
+			int length = getInt(tlv);
+
+			/*
+			 * Stop at a length beyond the bytes left
+			 */
+			if (length < 0 || tlv.length - this.cursor < length) {
+				break;
+			}
 
+			/*
+			 * Read or skip value
+			 */
+			int end = this.cursor + length;
+			if (type == MiniTLV.COMPRESSED_TYPE) {
+				
 				/*
-				 * Read 1st byte or next 2, 4-bytes if extended
+				 * Decompress wrapped value by its inner type
 				 */
-				int length = getConverter().convertToInt(getBytes(stream));
-
+				type = getInt(tlv, end);
+				if (!map.containsKey(type)) {
+					map.put(type, MiniTLVCodecs.unwrap(tlv, this.cursor, end - this.cursor));
+				}
+			} else if (type == MiniTLV.ENCRYPTED_TYPE) {
+				
 				/*
-				 * Read or skip value
+				 * Decrypt wrapped value by its inner type,
+				 * or keep its place as missing without session
 				 */
-				if (stream.available() >= length) {
-					if (!map.containsKey(type)) {
-						byte[] value = new byte[length];
-						stream.readFully(value);
-						map.put(type, value);
-					} else {
-						stream.skip(length);
-					}
+				type = getInt(tlv, end);
+				if (!map.containsKey(type)) {
+					map.put(type, unseal(tlv, type, this.cursor, end - this.cursor));
 				}
+			} else if (!map.containsKey(type)) {
+				map.put(type, Arrays.copyOfRange(tlv, this.cursor, end));
 			}
+			this.cursor = end;
 		}
 
+		/*
+		 * Drop values which could not be decrypted
+		 */
+		map.values().removeIf(Objects::isNull);
 		return map;
 	}
 	
+	@Override
+	public RecordMap parseRecords() throws IOException {
+		
+		/*
+		 * Reuse offset table if indexed
+		 */
+		if (this.index == null) {
+			index();
+		}
+		return new MiniTLVRecordMap(ByteBuffer.wrap(this.indexedTlv), this.index).decrypt(this.session);
+	}
+	
+	@Override
+	public Parser index() throws IOException {
+
+		/*
+		 * Convert stream to byte array
+		 */
+		byte[] tlv = this.innerStream.toByteArray();
+
+		/*
+		 * Prevent bad TLV
+		 */
+		if (tlv.length < TLV_MINSIZE) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		this.index = MiniTLVIndex.scan(ByteBuffer.wrap(tlv));
+		this.indexedTlv = tlv;
+		return this;
+	}
+	
+	@Override
+	public Parser reset() {
+		this.innerStream.reset();
+		this.index = null;
+		this.indexedTlv = null;
+		this.session = null;
+		return this;
+	}
+	
+	@Override
+	public Parser decrypt(Session session) {
+		this.session = session;
+		return this;
+	}
+	
 	@Override
 	public Parser read(byte[] tlv) throws IOException {
 		this.innerStream.write(tlv);
+		
+		/*
+		 * Drop outdated offset table
+		 */
+		this.index = null;
+		this.indexedTlv = null;
+		return this;
+	}
+	
+	/**
+	 * Buffer the bytes of the given stream up to its end, as {@link #read(byte[])} does.
+	 * @param input to read
+	 * @return this
+	 * @throws IOException
+	 */
+	Parser readFrom(InputStream input) throws IOException {
+		byte[] buffer = new byte[MiniTLVZip.BUFFER_SIZE];
+		for (int count = input.read(buffer); count >= 0; count = input.read(buffer)) {
+			this.innerStream.write(buffer, 0, count);
+		}
+		
+		/*
+		 * Drop outdated offset table
+		 */
+		this.index = null;
+		this.indexedTlv = null;
 		return this;
 	}
 	
@@ -0,0 +1,165 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.melua.api.Parser;
+import org.melua.api.Pipeline;
+import org.melua.api.Serializer;
+
+public class MiniTLVPipeline implements Pipeline {
+	
+	static final int CHUNK_SIZE = 65_536;
+	
+	/*
+	 * Stages, skipped when not configured
+	 */
+	private Level level;
+	private int keyLength;
+	private String secret;
+	
+	protected MiniTLVPipeline() {
+	}
+	
+	@Override
+	public Pipeline compress(Level level) {
+		this.level = level;
+		return this;
+	}
+	
+	@Override
+	public Pipeline encrypt(Algorithm algo, String secret) {
+		this.keyLength = secret == null ? 0 : algo.getKeyLength();
+		this.secret = secret;
+		return this;
+	}
+	
+	@Override
+	public long write(Serializer serializer, OutputStream output) throws IOException {
+		Deflater deflater = null;
+		try {
+			OutputStream stage = output;
+			
+			/*
+			 * Encrypt by chunks into the output
+			 */
+			MiniTLVCipherOutputStream cipher = null;
+			if (this.secret != null) {
+				try {
+					cipher = new MiniTLVCipherOutputStream(stage, this.keyLength, this.secret, CHUNK_SIZE);
+				} catch (GeneralSecurityException e) {
+					throw new IOException(e);
+				}
+				stage = cipher;
+			}
+			
+			/*
+			 * Compress with a pooled Deflater into the cipher
+			 */
+			DeflaterOutputStream deflating = null;
+			if (this.level != null) {
+				deflater = MiniTLVZip.deflater(this.level.getValue());
+				deflating = new DeflaterOutputStream(stage, deflater, MiniTLVZip.BUFFER_SIZE);
+				stage = deflating;
+			}
+			
+			/*
+			 * Gather record headers and small values, large values going straight through
+			 */
+			OutputStream records = new BufferedOutputStream(stage, MiniTLVZip.BUFFER_SIZE);
+			if (serializer instanceof MiniTLVSerializer) {
+				((MiniTLVSerializer) serializer).serializeTo(records);
+			} else {
+				records.write(serializer.serialize());
+			}
+			records.flush();
+			
+			/*
+			 * Close the stages, leaving the output open
+			 */
+			if (deflating != null) {
+				deflating.finish();
+			}
+			if (cipher != null) {
+				cipher.finish();
+			}
+			return serializer.encodedSize();
+		} finally {
+			if (deflater != null) {
+				MiniTLVZip.release(deflater);
+			}
+		}
+	}
+	
+	@Override
+	public Parser read(InputStream input, Parser parser) throws IOException {
+		Inflater inflater = null;
+		try {
+			InputStream stage = input;
+			
+			/*
+			 * Decrypt and check chunks from the input
+			 */
+			MiniTLVCipherInputStream cipher = null;
+			if (this.secret != null) {
+				cipher = new MiniTLVCipherInputStream(stage, this.secret);
+				stage = cipher;
+			}
+			
+			/*
+			 * Decompress with a pooled Inflater from the cipher
+			 */
+			if (this.level != null) {
+				inflater = MiniTLVZip.inflater();
+				stage = new InflaterInputStream(stage, inflater, MiniTLVZip.BUFFER_SIZE);
+			}
+			
+			if (parser instanceof MiniTLVParser) {
+				((MiniTLVParser) parser).readFrom(stage);
+			} else {
+				byte[] buffer = new byte[MiniTLVZip.BUFFER_SIZE];
+				for (int count = stage.read(buffer); count >= 0; count = stage.read(buffer)) {
+					parser.read(Arrays.copyOf(buffer, count));
+				}
+			}
+			
+			/*
+			 * Check the last chunk, which decompression may leave unread
+			 */
+			if ((inflater != null && inflater.getRemaining() > 0) || (cipher != null && cipher.read() >= 0)) {
+				throw new StreamCorruptedException();
+			}
+			return parser;
+		} finally {
+			if (inflater != null) {
+				MiniTLVZip.release(inflater);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,178 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.INPUT_ERROR;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import org.melua.api.IntObjConsumer;
+import org.melua.api.RecordMap;
+import org.melua.api.Session;
+
+/**
+ * Record map over an offset table of the read bytes,
+ * values being copied, decompressed or decrypted per slot on first access.
+ *
+ */
+final class MiniTLVRecordMap implements RecordMap {
+	
+	private ByteBuffer innerBuffer;
+	private final MiniTLVIndex index;
+	private byte[][] values;
+	private Session session;
+	
+	MiniTLVRecordMap(ByteBuffer buffer, MiniTLVIndex index) {
+		this.innerBuffer = buffer.asReadOnlyBuffer();
+		this.index = index;
+		this.values = new byte[index.capacity()][];
+	}
+	
+	/**
+	 * Point this map to other Type-Length-Value bytes,
+	 * reusing its own index and dropping the copied values.
+	 * The index must not be shared with a parser.
+	 * @param buffer to read from its position to its limit
+	 * @return this map
+	 * @throws StreamCorruptedException
+	 */
+	MiniTLVRecordMap reload(ByteBuffer buffer) throws StreamCorruptedException {
+		for (int i = 0; i < this.index.size(); i++) {
+			this.values[this.index.slot(i)] = null;
+		}
+		this.innerBuffer = buffer.asReadOnlyBuffer();
+		this.index.rescan(this.innerBuffer);
+		if (this.values.length < this.index.capacity()) {
+			this.values = new byte[this.index.capacity()][];
+		}
+		return this;
+	}
+	
+	/**
+	 * Decrypt the encrypted values with the given session.
+	 * @param session to decrypt with, or null
+	 * @return this map
+	 */
+	MiniTLVRecordMap decrypt(Session session) {
+		this.session = session;
+		return this;
+	}
+	
+	/**
+	 * Check whether the value of the given slot can be read,
+	 * an encrypted value needing a session.
+	 * @param slot of the value
+	 * @return true if readable
+	 */
+	private boolean readable(int slot) {
+		return this.session != null || this.index.kind(slot) != MiniTLVIndex.ENCRYPTED;
+	}
+	
+	@Override
+	public int size() {
+		return this.session != null ? this.index.size() : this.index.size() - this.index.encrypted();
+	}
+	
+	@Override
+	public boolean containsKey(int type) {
+		int slot = this.index.find(type);
+		return slot >= 0 && readable(slot);
+	}
+	
+	@Override
+	public byte[] get(int type) {
+		int slot = this.index.find(type);
+		return slot < 0 ? null : materialize(slot);
+	}
+	
+	@Override
+	public ByteBuffer slice(int type) {
+		int slot = this.index.find(type);
+		return slot < 0 ? null : sliceSlot(slot);
+	}
+	
+	@Override
+	public void forEach(IntObjConsumer<byte[]> consumer) {
+		for (int i = 0; i < this.index.size(); i++) {
+			int slot = this.index.slot(i);
+			if (readable(slot)) {
+				consumer.accept(this.index.type(slot), materialize(slot));
+			}
+		}
+	}
+	
+	@Override
+	public void forEachSlice(IntObjConsumer<ByteBuffer> consumer) {
+		for (int i = 0; i < this.index.size(); i++) {
+			int slot = this.index.slot(i);
+			if (readable(slot)) {
+				consumer.accept(this.index.type(slot), sliceSlot(slot));
+			}
+		}
+	}
+	
+	/**
+	 * Slice the value of the given slot,
+	 * or wrap its decompressed copy if it was compressed.
+	 * @param slot of the value
+	 * @return read-only buffer
+	 */
+	private ByteBuffer sliceSlot(int slot) {
+		if (this.index.kind(slot) != MiniTLVIndex.PLAIN) {
+			byte[] value = materialize(slot);
+			return value == null ? null : ByteBuffer.wrap(value).asReadOnlyBuffer();
+		}
+		return slice(this.index.position(slot), this.index.length(slot));
+	}
+	
+	private ByteBuffer slice(long position, int length) {
+		ByteBuffer slice = this.innerBuffer.duplicate();
+		slice.limit((int) position + length);
+		slice.position((int) position);
+		return slice.slice();
+	}
+	
+	private byte[] materialize(int slot) {
+		if (this.values[slot] == null) {
+			if (this.index.kind(slot) == MiniTLVIndex.COMPRESSED) {
+				this.values[slot] = MiniTLVCodecs.unwrap(slice(this.index.position(slot), this.index.length(slot)));
+			} else if (this.index.kind(slot) == MiniTLVIndex.ENCRYPTED) {
+				
+				/*
+				 * Decrypt only with a session
+				 */
+				if (this.session == null) {
+					return null;
+				}
+				try {
+					this.values[slot] = MiniTLVSession.unseal(this.session, this.index.type(slot),
+							slice(this.index.position(slot), this.index.length(slot)));
+				} catch (GeneralSecurityException e) {
+					throw new IllegalArgumentException(INPUT_ERROR, e);
+				}
+			} else {
+				byte[] value = new byte[this.index.length(slot)];
+				slice(this.index.position(slot), value.length).get(value);
+				this.values[slot] = value;
+			}
+		}
+		return this.values[slot];
+	}
+
+}
@@ -0,0 +1,163 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.EXT_MAXSIZE;
+import static org.melua.MiniTLV.INT_SIZE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.melua.api.Converter;
+
+/**
+ * Growable list of records in insertion order:
+ * values are copied into one shared byte arena,
+ * types are packed as integers with their width,
+ * and the encoded size is maintained as records are added.
+ *
+ */
+final class MiniTLVRecords {
+	
+	private static final int MIN_CAPACITY = 16;
+	private static final int MIN_ARENA = 256;
+	
+	private byte[] arena = new byte[MIN_ARENA];
+	private int arenaSize;
+	
+	private int[] offsets = new int[MIN_CAPACITY];
+	private int[] lengths = new int[MIN_CAPACITY];
+	private int[] types = new int[MIN_CAPACITY];
+	private byte[] widths = new byte[MIN_CAPACITY];
+	private int size;
+	
+	private int encodedSize;
+	
+	/**
+	 * Copy the given value and append it with its type.
+	 * @param value for the given type
+	 * @param type to write
+	 */
+	void add(byte[] value, byte... type) {
+		int recordSize = MiniTLVSerializer.getSize(value, type);
+		int offset = reserve(value.length, recordSize, type);
+		System.arraycopy(value, 0, this.arena, offset, value.length);
+	}
+	
+	/**
+	 * Convert the given integer straight into the arena and append it with its type.
+	 * @param value for the given type
+	 * @param len number of bytes, 2 or 4
+	 * @param converter to write the value
+	 * @param type to write
+	 */
+	void add(int value, int len, Converter converter, byte... type) {
+		int recordSize = MiniTLVSerializer.getHeaderSize(len, type) + len;
+		int offset = reserve(len, recordSize, type);
+		converter.writeInt(this.arena, offset, value, len);
+	}
+	
+	/**
+	 * Grow the arrays if needed and register a record of the given length.
+	 * @param length of the value
+	 * @param recordSize encoded size of the record
+	 * @param type to write
+	 * @return offset of the value in the arena
+	 */
+	private int reserve(int length, int recordSize, byte... type) {
+		if (this.size == this.offsets.length) {
+			int capacity = this.size * 2;
+			this.offsets = Arrays.copyOf(this.offsets, capacity);
+			this.lengths = Arrays.copyOf(this.lengths, capacity);
+			this.types = Arrays.copyOf(this.types, capacity);
+			this.widths = Arrays.copyOf(this.widths, capacity);
+		}
+		if (this.arena.length - this.arenaSize < length) {
+			this.arena = Arrays.copyOf(this.arena, Math.max(Math.addExact(this.arenaSize, length), this.arena.length * 2));
+		}
+		
+		int offset = this.arenaSize;
+		this.offsets[this.size] = offset;
+		this.lengths[this.size] = length;
+		this.types[this.size] = pack(type);
+		this.widths[this.size] = (byte) type.length;
+		this.size++;
+		
+		this.arenaSize += length;
+		this.encodedSize = Math.addExact(this.encodedSize, recordSize);
+		return offset;
+	}
+	
+	private static int pack(byte... type) {
+		int result = 0;
+		for (byte b : type) {
+			result = result << Byte.SIZE | b & 0xff;
+		}
+		return result;
+	}
+	
+	int size() {
+		return this.size;
+	}
+	
+	/**
+	 * Retrieve the size of all records in Type-Length-Value representation.
+	 * @return size in bytes
+	 */
+	int getEncodedSize() {
+		return this.encodedSize;
+	}
+	
+	/**
+	 * Write all records in insertion order.
+	 * @param buffer to append, with at least {@link #getEncodedSize()} remaining bytes
+	 */
+	void writeTo(ByteBuffer buffer) {
+		for (int i = 0; i < this.size; i++) {
+			MiniTLVSerializer.serializeHeader(buffer, this.lengths[i], this.types[i], this.widths[i]);
+			buffer.put(this.arena, this.offsets[i], this.lengths[i]);
+		}
+	}
+	
+	/**
+	 * Write every record in insertion order to the given stream,
+	 * each value straight from the arena.
+	 * @param output to write
+	 * @throws IOException
+	 */
+	void writeTo(OutputStream output) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(2 * (EXT_MAXSIZE + INT_SIZE));
+		for (int i = 0; i < this.size; i++) {
+			header.clear();
+			MiniTLVSerializer.serializeHeader(header, this.lengths[i], this.types[i], this.widths[i]);
+			output.write(header.array(), 0, header.position());
+			output.write(this.arena, this.offsets[i], this.lengths[i]);
+		}
+	}
+	
+	/**
+	 * Remove all records, keeping the grown arrays.
+	 */
+	void clear() {
+		this.size = 0;
+		this.arenaSize = 0;
+		this.encodedSize = 0;
+	}
+
+}
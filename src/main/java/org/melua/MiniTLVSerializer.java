@@ -25,24 +25,41 @@ import static org.melua.MiniTLV.TYPE_ERROR;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
 
+import org.melua.api.Codec;
 import org.melua.api.Converter;
 import org.melua.api.Serializer;
+import org.melua.api.Session;
 
 public class MiniTLVSerializer implements Serializer {
 	
 	private final Converter converter;
-	private final ByteArrayOutputStream innerStream = new ByteArrayOutputStream();
-	private final Map<byte[], byte[]> innerMap = new HashMap<>();
+	private final MiniTLVRecords records = new MiniTLVRecords();
+	
+	/*
+	 * Compression of large values, disabled without codec
+	 */
+	private Codec codec;
+	private int threshold;
+	
+	/*
+	 * Encryption of values, disabled without session
+	 */
+	private Session session;
 	
 	private static final int UBYTE_MAXVALUE = 255;
 	private static final int USHORT_MAXVALUE = 65_535;
 	
+	private static final byte[] COMPRESSED_TYPE = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff};
+	private static final byte[] ENCRYPTED_TYPE = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xfe};
+	
 	protected MiniTLVSerializer(Converter converter) {
 		this.converter = converter;
 	}
@@ -50,10 +67,10 @@ public class MiniTLVSerializer implements Serializer {
 	/**
 	 * Automatically add extra {@link #EXTENTED_BYTES} for 2 and 4-bytes type.
 	 * @param buffer to append
-	 * @param type to check
+	 * @param width of the type to check
 	 */
-	private static void addExtendedType(ByteBuffer buffer, byte[] type) {
-		switch (type.length) {
+	private static void addExtendedType(ByteBuffer buffer, int width) {
+		switch (width) {
 		default:
 			throw new IllegalArgumentException();
 		case INT_SIZE:
@@ -79,26 +96,90 @@ public class MiniTLVSerializer implements Serializer {
 	}
 	
 	/**
-	 * Create the shortest byte array from the given integer.
-	 * @param value
-	 * @return byte array
+	 * Put the shortest big-endian representation of the given integer.
+	 * @param buffer to append
+	 * @param value to put
 	 */
-	private static byte[] minimalBytes(int value) {
-		ByteBuffer buffer = ByteBuffer.allocate(INT_SIZE);
+	private static void putMinimalBytes(ByteBuffer buffer, int value) {
 		if (value > UBYTE_MAXVALUE) {
 			if (value > USHORT_MAXVALUE) {
-				buffer.putInt(value);
-			} else {
-				buffer.putShort((short) value);
+				buffer.put((byte) (value >>> 24));
+				buffer.put((byte) (value >>> 16));
 			}
-		} else {
-			buffer.put((byte) value);
+			buffer.put((byte) (value >>> 8));
+		}
+		buffer.put((byte) value);
+	}
+	
+	/**
+	 * Compute the size of the Type-Length-Value for the given type and value,
+	 * including the extra {@link #EXTENTED_BYTES}.
+	 * @param value for the given type
+	 * @param type to write
+	 * @return size in bytes
+	 */
+	static int getSize(byte[] value, byte... type) {
+		
+		/*
+		 * Prevent bad value
+		 */
+		if (value == null) {
+			throw new IllegalArgumentException(INPUT_ERROR);
 		}
 		
-		buffer.flip();
-		byte[] result = new byte[buffer.limit()];
-		buffer.get(result, 0, buffer.limit());
-		return result;
+		return getHeaderSize(value.length, type) + value.length;
+	}
+	
+	/**
+	 * Prevent writing a reserved type, {@link MiniTLV#COMPRESSED_TYPE COMPRESSED_TYPE}
+	 * or {@link MiniTLV#ENCRYPTED_TYPE ENCRYPTED_TYPE}, which parsers would read as a wrapped value.
+	 * @param type to write
+	 */
+	static void checkType(byte... type) {
+		if (Arrays.equals(type, COMPRESSED_TYPE) || Arrays.equals(type, ENCRYPTED_TYPE)) {
+			throw new IllegalArgumentException(TYPE_ERROR);
+		}
+	}
+	
+	/**
+	 * Compute the size of the type and length for the given type and value length,
+	 * including the extra {@link #EXTENTED_BYTES}.
+	 * @param length of the value
+	 * @param type to write
+	 * @return size in bytes
+	 */
+	static int getHeaderSize(int length, byte... type) {
+		
+		/*
+		 * Prevent bad length
+		 */
+		if (length < 0) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		/*
+		 * Prevent bad type
+		 */
+		if (type.length != BYTE_SIZE && type.length != SHORT_SIZE && type.length != INT_SIZE) {
+			throw new IllegalArgumentException(TYPE_ERROR);
+		}
+		
+		/*
+		 * Type with 0, 1 or 2 extended marks
+		 */
+		int size = type.length + type.length / SHORT_SIZE;
+		
+		/*
+		 * Length with 0, 1 or 2 extended marks
+		 */
+		if (length > USHORT_MAXVALUE) {
+			size += EXT_MAXSIZE + INT_SIZE;
+		} else if (length > UBYTE_MAXVALUE) {
+			size += BYTE_SIZE + SHORT_SIZE;
+		} else {
+			size += BYTE_SIZE;
+		}
+		return size;
 	}
 	
 	/**
@@ -110,19 +191,142 @@ public class MiniTLVSerializer implements Serializer {
 	 * and must be given in {@link ByteOrder#BIG_ENDIAN} order. An extra
 	 * {@link #EXTENTED_BYTES} byte is automatically added for 2 and 4-bytes type and length.
 	 * 
+	 * @param buffer to append, with at least {@link #getSize(byte[], byte...)} remaining bytes
 	 * @param value for the given type
 	 * @param type to write
-	 * @return bytes in Type-Length-Value representation
 	 */
-	private byte[] serialize(byte[] value, byte... type) {
+	static void serialize(ByteBuffer buffer, byte[] value, byte... type) {
+		serializeHeader(buffer, value.length, type);
 		
 		/*
-		 * Prevent bad value
+		 * Put value
 		 */
-		if (value == null) {
+		buffer.put(value);
+	}
+	
+	/**
+	 * Write the type and length for the given type and value length,
+	 * the value being written afterwards by the caller.
+	 * 
+	 * @param buffer to append, with at least {@link #getHeaderSize(int, byte...)} remaining bytes
+	 * @param length of the value
+	 * @param type to write
+	 */
+	static void serializeHeader(ByteBuffer buffer, int length, byte... type) {
+		
+		/*
+		 * Put type and add extended marks if necessary
+		 */
+		addExtendedType(buffer, type.length);
+		buffer.put(type);
+		
+		/*
+		 * Put length and add extended marks if necessary
+		 */
+		addExtendedLength(buffer, length);
+		putMinimalBytes(buffer, length);
+	}
+	
+	/**
+	 * Write the type and length for the given packed type and value length,
+	 * the value being written afterwards by the caller.
+	 * 
+	 * @param buffer to append
+	 * @param length of the value
+	 * @param type to write, in {@link ByteOrder#BIG_ENDIAN} order
+	 * @param width of the type, 1, 2 or 4-bytes
+	 */
+	static void serializeHeader(ByteBuffer buffer, int length, int type, int width) {
+		
+		/*
+		 * Put type and add extended marks if necessary
+		 */
+		addExtendedType(buffer, width);
+		for (int shift = (width - 1) * Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+			buffer.put((byte) (type >>> shift));
+		}
+		
+		/*
+		 * Put length and add extended marks if necessary
+		 */
+		addExtendedLength(buffer, length);
+		putMinimalBytes(buffer, length);
+	}
+	
+	@Override
+	public int encodedSize() {
+		return this.records.getEncodedSize();
+	}
+	
+	@Override
+	public byte[] serialize() throws IOException {
+		
+		/*
+		 * Fill one array of the exact size
+		 */
+		byte[] tlv = new byte[this.records.getEncodedSize()];
+		this.records.writeTo(ByteBuffer.wrap(tlv));
+		return tlv;
+	}
+	
+	@Override
+	public int serializeTo(ByteBuffer target) {
+		
+		/*
+		 * Prevent partial write
+		 */
+		int size = this.records.getEncodedSize();
+		if (target.remaining() < size) {
+			throw new BufferOverflowException();
+		}
+		
+		this.records.writeTo(target);
+		return size;
+	}
+	
+	/**
+	 * Write the Type-Length-Values to the given stream,
+	 * without an intermediate array.
+	 * @param output to write
+	 * @throws IOException
+	 */
+	void serializeTo(OutputStream output) throws IOException {
+		this.records.writeTo(output);
+	}
+	
+	@Override
+	public Serializer reset() {
+		this.records.clear();
+		this.codec = null;
+		this.session = null;
+		return this;
+	}
+	
+	@Override
+	public Serializer compress(Codec codec, int threshold) {
+		
+		/*
+		 * Prevent bad threshold
+		 */
+		if (threshold < 0) {
 			throw new IllegalArgumentException(INPUT_ERROR);
 		}
 		
+		this.codec = codec;
+		this.threshold = threshold;
+		return this;
+	}
+	
+	/**
+	 * Wrap the given type and compressed value
+	 * as the value of a {@link MiniTLV#COMPRESSED_TYPE COMPRESSED_TYPE} record.
+	 * @param value to compress
+	 * @param type of the value
+	 * @return inner type, codec identifier and compressed value,
+	 * or null if the value looks incompressible
+	 */
+	private byte[] wrap(byte[] value, byte... type) {
+		
 		/*
 		 * Prevent bad type
 		 */
@@ -130,49 +334,136 @@ public class MiniTLVSerializer implements Serializer {
 			throw new IllegalArgumentException(TYPE_ERROR);
 		}
 		
-		/*
-		 * Prepare type and add extended marks if necessary
-		 */
-		ByteBuffer tbuffer = ByteBuffer.allocate(EXT_MAXSIZE + INT_SIZE);
-		addExtendedType(tbuffer, type);
-		tbuffer.put(type);
-		tbuffer.flip();
-		byte[] givenType = new byte[tbuffer.limit()];
-		tbuffer.get(givenType, 0, tbuffer.limit());
+		try {
+			
+			/*
+			 * Skip incompressible value after a trial on its first bytes
+			 */
+			if (value.length > MiniTLVCodecs.SAMPLE_SIZE
+					&& !MiniTLVCodecs.isCompressible(this.codec, value, 0, value.length, MiniTLVCodecs.MIN_GAIN)) {
+				return null;
+			}
+			
+			ByteBuffer header = ByteBuffer.allocate(EXT_MAXSIZE + INT_SIZE);
+			addExtendedType(header, type.length);
+			header.put(type);
+			
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream(value.length / 2 + header.position() + 1);
+			outputStream.write(header.array(), 0, header.position());
+			outputStream.write(this.codec.getId());
+			this.codec.compress(value, 0, value.length, Level.BALANCED.getValue(), outputStream);
+			return outputStream.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	@Override
+	public Serializer encrypt(Session session) {
+		this.session = session;
+		return this;
+	}
+	
+	/**
+	 * Wrap the given type and encrypted value
+	 * as the value of a {@link MiniTLV#ENCRYPTED_TYPE ENCRYPTED_TYPE} record.
+	 * The type is encrypted along with the value,
+	 * so that the value cannot be moved to another type unnoticed.
+	 * @param value to encrypt
+	 * @param type of the value
+	 * @return inner type, then encrypted inner type and value
+	 */
+	private byte[] seal(byte[] value, byte... type) {
 		
 		/*
-		 * Prepare length and add extended marks if necessary
+		 * Prevent bad value
 		 */
-		ByteBuffer lbuffer = ByteBuffer.allocate(EXT_MAXSIZE + INT_SIZE);
-		addExtendedLength(lbuffer, value.length);
-		lbuffer.put(minimalBytes(value.length));
-		lbuffer.flip();
-		byte[] length = new byte[lbuffer.limit()];
-		lbuffer.get(length, 0, lbuffer.limit());
+		if (value == null) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
 		
 		/*
-		 * Create Type-Length-Value with calculated size
+		 * Prevent bad type
 		 */
-		ByteBuffer buffer = ByteBuffer.allocate(givenType.length + length.length + value.length);
-		buffer.put(givenType);
-		buffer.put(length);
-		buffer.put(value);
-		return buffer.array();
+		if (type.length != BYTE_SIZE && type.length != SHORT_SIZE && type.length != INT_SIZE) {
+			throw new IllegalArgumentException(TYPE_ERROR);
+		}
+		
+		ByteBuffer plain = ByteBuffer.allocate(EXT_MAXSIZE + INT_SIZE + value.length);
+		addExtendedType(plain, type.length);
+		plain.put(type);
+		int typeSize = plain.position();
+		plain.put(value);
+		
+		byte[] encrypted;
+		try {
+			encrypted = this.session.encrypt(Arrays.copyOf(plain.array(), plain.position()));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		byte[] wrapped = Arrays.copyOf(plain.array(), typeSize + encrypted.length);
+		System.arraycopy(encrypted, 0, wrapped, typeSize, encrypted.length);
+		return wrapped;
 	}
 	
 	@Override
-	public byte[] serialize() throws IOException {
-		for (Entry<byte[], byte[]> entry : this.innerMap.entrySet()) {
-			if (entry.getValue() != null) {
-				this.innerStream.write(serialize(entry.getKey(), entry.getValue()));
+	public Serializer write(byte[] value, byte... type) {
+		if (type != null) {
+			checkType(type);
+			
+			/*
+			 * Encrypt value, without compression
+			 */
+			if (this.session != null) {
+				this.records.add(seal(value, type), ENCRYPTED_TYPE);
+				return this;
 			}
+			
+			/*
+			 * Compress large value if smaller
+			 */
+			if (this.codec != null && value != null && value.length >= this.threshold) {
+				byte[] wrapped = wrap(value, type);
+				if (wrapped != null && wrapped.length < value.length) {
+					this.records.add(wrapped, COMPRESSED_TYPE);
+					return this;
+				}
+			}
+			this.records.add(value, type);
 		}
-		return this.innerStream.toByteArray();
+		return this;
 	}
 	
 	@Override
-	public Serializer write(byte[] value, byte... type) {
-		this.innerMap.put(value, type);
+	public Serializer write(short value, byte... type) {
+		
+		/*
+		 * Encrypt value as bytes
+		 */
+		if (type != null && this.session != null) {
+			return write(this.converter.convertToBytes(value), type);
+		}
+		if (type != null) {
+			checkType(type);
+			this.records.add(value, SHORT_SIZE, this.converter, type);
+		}
+		return this;
+	}
+	
+	@Override
+	public Serializer write(int value, byte... type) {
+		
+		/*
+		 * Encrypt value as bytes
+		 */
+		if (type != null && this.session != null) {
+			return write(this.converter.convertToBytes(value), type);
+		}
+		if (type != null) {
+			checkType(type);
+			this.records.add(value, INT_SIZE, this.converter, type);
+		}
 		return this;
 	}
 
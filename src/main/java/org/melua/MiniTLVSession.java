@@ -0,0 +1,146 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.melua.api.Session;
+
+public class MiniTLVSession implements Session {
+	
+	static final String GCM_ALGORITHM = "AES/GCM/NoPadding";
+	static final int NONCE_SIZE = 12;
+	static final int TAG_SIZE = 16;
+	
+	private final String secret;
+	private final int keyLength;
+	private final byte[] salt;
+	private final SecretKeySpec key;
+	private final boolean otherSalts;
+	
+	/*
+	 * Nonces are a random prefix and a counter, unique for the session key
+	 */
+	private final int noncePrefix;
+	private final AtomicLong counter = new AtomicLong();
+	
+	protected MiniTLVSession(Algorithm algo, String secret, boolean otherSalts) throws GeneralSecurityException {
+		this.secret = secret;
+		this.otherSalts = otherSalts;
+		this.keyLength = algo.getKeyLength();
+		
+		/*
+		 * Derive the session key once
+		 */
+		this.salt = MiniTLVCiphers.random(new byte[this.keyLength]);
+		this.key = MiniTLVKeys.derive(secret, this.salt, this.keyLength);
+		this.noncePrefix = MiniTLVCiphers.randomInt();
+	}
+	
+	@Override
+	public byte[] encrypt(byte[] data) throws GeneralSecurityException {
+		
+		/*
+		 * Build a nonce never used with this key
+		 */
+		ByteBuffer nonce = ByteBuffer.allocate(NONCE_SIZE);
+		nonce.putInt(this.noncePrefix);
+		nonce.putLong(this.counter.getAndIncrement());
+		
+		Cipher cipher = MiniTLVCiphers.get(GCM_ALGORITHM);
+		cipher.init(Cipher.ENCRYPT_MODE, this.key, new GCMParameterSpec(TAG_SIZE * Byte.SIZE, nonce.array()));
+		cipher.updateAAD(this.salt);
+		
+		/*
+		 * Return salt, nonce and encrypted data
+		 */
+		byte[] result = new byte[this.salt.length + NONCE_SIZE + cipher.getOutputSize(data.length)];
+		System.arraycopy(this.salt, 0, result, 0, this.salt.length);
+		System.arraycopy(nonce.array(), 0, result, this.salt.length, NONCE_SIZE);
+		cipher.doFinal(data, 0, data.length, result, this.salt.length + NONCE_SIZE);
+		return result;
+	}
+	
+	/**
+	 * Decrypt the given wrapped value of an {@link MiniTLV#ENCRYPTED_TYPE ENCRYPTED_TYPE} record
+	 * and check that it was encrypted for the given type.
+	 * @param session to decrypt with
+	 * @param type expected inner type
+	 * @param value encrypted inner type and value, whose position is left unchanged
+	 * @return decrypted value
+	 * @throws GeneralSecurityException if the value was altered, moved to another type or the secret differs
+	 */
+	static byte[] unseal(Session session, int type, ByteBuffer value) throws GeneralSecurityException {
+		byte[] encrypted = new byte[value.remaining()];
+		value.duplicate().get(encrypted);
+		ByteBuffer decrypted = ByteBuffer.wrap(session.decrypt(encrypted));
+		try {
+			if (MiniTLVParser.getInt(decrypted) != type) {
+				throw new AEADBadTagException();
+			}
+		} catch (StreamCorruptedException e) {
+			throw new AEADBadTagException();
+		}
+		byte[] result = new byte[decrypted.remaining()];
+		decrypted.get(result);
+		return result;
+	}
+	
+	@Override
+	public byte[] decrypt(byte[] data) throws GeneralSecurityException {
+		
+		/*
+		 * Prevent bad input
+		 */
+		if (data.length < this.keyLength + NONCE_SIZE + TAG_SIZE) {
+			throw new AEADBadTagException();
+		}
+		
+		/*
+		 * Reuse the session key, or the cached key of another salt
+		 */
+		byte[] dataSalt = Arrays.copyOfRange(data, 0, this.keyLength);
+		SecretKeySpec dataKey = this.key;
+		if (!Arrays.equals(dataSalt, this.salt)) {
+			
+			/*
+			 * Prevent deriving keys for forged salts
+			 */
+			if (!this.otherSalts) {
+				throw new AEADBadTagException();
+			}
+			dataKey = MiniTLVKeys.derive(this.secret, dataSalt, this.keyLength);
+		}
+		
+		Cipher cipher = MiniTLVCiphers.get(GCM_ALGORITHM);
+		cipher.init(Cipher.DECRYPT_MODE, dataKey, new GCMParameterSpec(TAG_SIZE * Byte.SIZE, data, this.keyLength, NONCE_SIZE));
+		cipher.updateAAD(dataSalt);
+		
+		int offset = this.keyLength + NONCE_SIZE;
+		return cipher.doFinal(data, offset, data.length - offset);
+	}
+
+}
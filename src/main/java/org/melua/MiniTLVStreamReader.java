@@ -0,0 +1,278 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.EXT_MAXSIZE;
+import static org.melua.MiniTLV.INPUT_ERROR;
+import static org.melua.MiniTLV.INT_SIZE;
+import static org.melua.MiniTLV.TLV_MINSIZE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+import org.melua.api.StreamReader;
+
+public class MiniTLVStreamReader implements StreamReader {
+	
+	/*
+	 * Largest type and length with extended marks
+	 */
+	private static final int HEADER_MAXSIZE = (EXT_MAXSIZE + INT_SIZE) * 2;
+	
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+	private final ReadableByteChannel valueChannel = new ValueChannel();
+	
+	private int type;
+	private int length;
+	private int remaining;
+	private int headerSize;
+	
+	protected MiniTLVStreamReader(ReadableByteChannel channel, int bufferSize) {
+		
+		/*
+		 * Prevent header split over two buffers
+		 */
+		if (bufferSize < HEADER_MAXSIZE) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		/*
+		 * Prevent busy reads of a channel returning no bytes
+		 */
+		if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		this.buffer.flip();
+	}
+	
+	/**
+	 * Read from the channel until the buffer holds the needed bytes.
+	 * @param needed bytes
+	 * @return false if the end of stream is reached before
+	 * @throws IOException
+	 */
+	private boolean fill(int needed) throws IOException {
+		if (this.buffer.remaining() >= needed) {
+			return true;
+		}
+		
+		this.buffer.compact();
+		try {
+			while (this.buffer.position() < needed) {
+				if (this.channel.read(this.buffer) < 0) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			this.buffer.flip();
+		}
+	}
+	
+	/**
+	 * Read type or length from the channel byte by byte,
+	 * waiting only for the extra {@link MiniTLV#EXTENTED_BYTES} and the width they call for,
+	 * as {@link MiniTLVParser#getInt(ByteBuffer)} does.
+	 * @return integer in {@link java.nio.ByteOrder#BIG_ENDIAN BIG_ENDIAN} order
+	 * @throws IOException
+	 * @throws EOFException if the stream ends within the header
+	 */
+	private int readInt() throws IOException {
+		for (int bytes = 1; ; bytes *= 2) {
+			if (!fill(1)) {
+				throw new EOFException();
+			}
+			if (this.buffer.get(this.buffer.position()) != MiniTLV.EXTENTED_BYTES || bytes == INT_SIZE) {
+				if (!fill(bytes)) {
+					this.headerSize += this.buffer.remaining();
+					throw new EOFException();
+				}
+				int result = 0;
+				for (int i = 0; i < bytes; i++) {
+					result = result << Byte.SIZE | this.buffer.get() & 0xff;
+				}
+				this.headerSize += bytes;
+				return result;
+			}
+			this.buffer.get();
+			this.headerSize++;
+		}
+	}
+	
+	/**
+	 * Discard what is left of the current value,
+	 * without buffering it if the channel is seekable.
+	 * @throws IOException
+	 */
+	private void skipValue() throws IOException {
+		int skipped = Math.min(this.buffer.remaining(), this.remaining);
+		this.buffer.position(this.buffer.position() + skipped);
+		this.remaining -= skipped;
+		
+		if (this.remaining > 0 && this.channel instanceof SeekableByteChannel) {
+			SeekableByteChannel seekable = (SeekableByteChannel) this.channel;
+			seekable.position(seekable.position() + this.remaining);
+			this.remaining = 0;
+		}
+		
+		while (this.remaining > 0) {
+			this.buffer.clear();
+			this.buffer.limit(Math.min(this.remaining, this.buffer.capacity()));
+			int read = this.channel.read(this.buffer);
+			if (read < 0) {
+				throw new EOFException();
+			}
+			this.remaining -= read;
+			this.buffer.flip();
+			this.buffer.position(this.buffer.limit());
+		}
+	}
+	
+	@Override
+	public boolean next() throws IOException {
+		skipValue();
+		
+		this.headerSize = 0;
+		try {
+			
+			/*
+			 * Read 1st byte or next 2, 4-bytes if extended,
+			 * without waiting for more bytes than the header holds
+			 */
+			this.type = readInt();
+			
+			/*
+			 * Read 1st byte or next 2, 4-bytes if extended
+			 */
+			this.length = readInt();
+		} catch (EOFException e) {
+			
+			/*
+			 * Ignore trailing bytes too short for a record
+			 */
+			if (this.headerSize < TLV_MINSIZE) {
+				return false;
+			}
+			throw new StreamCorruptedException();
+		}
+		
+		if (this.length < 0) {
+			throw new StreamCorruptedException();
+		}
+		this.remaining = this.length;
+		return true;
+	}
+	
+	@Override
+	public int getType() {
+		return this.type;
+	}
+	
+	@Override
+	public int getLength() {
+		return this.length;
+	}
+	
+	@Override
+	public byte[] getValue() throws IOException {
+		
+		/*
+		 * Grow with the bytes actually read rather than trust the length,
+		 * so that a truncated stream ends before a large allocation
+		 */
+		byte[] value = new byte[Math.min(this.remaining, this.buffer.capacity())];
+		int size = 0;
+		while (this.remaining > 0) {
+			if (size == value.length) {
+				value = Arrays.copyOf(value, size + Math.min(size, this.remaining));
+			}
+			int read = this.valueChannel.read(ByteBuffer.wrap(value, size, value.length - size));
+			if (read < 0) {
+				throw new EOFException();
+			}
+			size += read;
+		}
+		return value;
+	}
+	
+	@Override
+	public ReadableByteChannel getValueChannel() {
+		return this.valueChannel;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+	
+	/**
+	 * Channel limited to the current value,
+	 * reading buffered bytes first then straight from the stream.
+	 *
+	 */
+	private class ValueChannel implements ReadableByteChannel {
+		
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			if (remaining == 0) {
+				return -1;
+			}
+			
+			int read;
+			if (buffer.hasRemaining()) {
+				read = Math.min(Math.min(buffer.remaining(), dst.remaining()), remaining);
+				ByteBuffer chunk = buffer.duplicate();
+				chunk.limit(chunk.position() + read);
+				dst.put(chunk);
+				buffer.position(buffer.position() + read);
+			} else {
+				int limit = dst.limit();
+				dst.limit(dst.position() + Math.min(dst.remaining(), remaining));
+				try {
+					read = channel.read(dst);
+				} finally {
+					dst.limit(limit);
+				}
+				if (read < 0) {
+					throw new EOFException();
+				}
+			}
+			remaining -= read;
+			return read;
+		}
+		
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+		
+		@Override
+		public void close() {
+		}
+	}
+
+}
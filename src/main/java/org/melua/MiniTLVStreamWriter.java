@@ -0,0 +1,158 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.EXT_MAXSIZE;
+import static org.melua.MiniTLV.INPUT_ERROR;
+import static org.melua.MiniTLV.INT_SIZE;
+
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import org.melua.api.Converter;
+import org.melua.api.StreamWriter;
+
+public class MiniTLVStreamWriter implements StreamWriter {
+	
+	/*
+	 * Largest type and length with extended marks
+	 */
+	private static final int HEADER_MAXSIZE = (EXT_MAXSIZE + INT_SIZE) * 2;
+	
+	private final Converter converter;
+	private final WritableByteChannel channel;
+	private final Flushable flushable;
+	private final ByteBuffer buffer;
+	
+	protected MiniTLVStreamWriter(WritableByteChannel channel, Flushable flushable, int bufferSize, Converter converter) {
+		
+		/*
+		 * Prevent header split over two buffers
+		 */
+		if (bufferSize < HEADER_MAXSIZE) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		this.converter = converter;
+		this.channel = channel;
+		this.flushable = flushable;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+	}
+	
+	/**
+	 * Write the buffered bytes to the channel.
+	 * @throws IOException
+	 */
+	private void drain() throws IOException {
+		this.buffer.flip();
+		while (this.buffer.hasRemaining()) {
+			this.channel.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+	
+	/**
+	 * Buffer the type and length, draining first if they do not fit.
+	 * @param length of the value
+	 * @param type to write
+	 * @throws IOException
+	 */
+	private void writeHeader(int length, byte... type) throws IOException {
+		MiniTLVSerializer.checkType(type);
+		if (this.buffer.remaining() < MiniTLVSerializer.getHeaderSize(length, type)) {
+			drain();
+		}
+		MiniTLVSerializer.serializeHeader(this.buffer, length, type);
+	}
+	
+	@Override
+	public StreamWriter write(byte[] value, byte... type) throws IOException {
+		
+		/*
+		 * Prevent bad value
+		 */
+		if (value == null) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		writeHeader(value.length, type);
+		
+		/*
+		 * Buffer small value, write large value as is
+		 */
+		if (value.length <= this.buffer.remaining()) {
+			this.buffer.put(value);
+		} else {
+			drain();
+			ByteBuffer source = ByteBuffer.wrap(value);
+			while (source.hasRemaining()) {
+				this.channel.write(source);
+			}
+		}
+		return this;
+	}
+	
+	@Override
+	public StreamWriter write(InputStream value, int length, byte... type) throws IOException {
+		writeHeader(length, type);
+		
+		/*
+		 * Copy value through the buffer
+		 */
+		int remaining = length;
+		while (remaining > 0) {
+			if (!this.buffer.hasRemaining()) {
+				drain();
+			}
+			int read = value.read(this.buffer.array(), this.buffer.arrayOffset() + this.buffer.position(),
+					Math.min(remaining, this.buffer.remaining()));
+			if (read < 0) {
+				throw new EOFException();
+			}
+			this.buffer.position(this.buffer.position() + read);
+			remaining -= read;
+		}
+		return this;
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		drain();
+		if (this.flushable != null) {
+			this.flushable.flush();
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			this.channel.close();
+		}
+	}
+	
+	@Override
+	public Converter getConverter() {
+		return this.converter;
+	}
+
+}
@@ -0,0 +1,145 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.BYTE_SIZE;
+import static org.melua.MiniTLV.INPUT_ERROR;
+import static org.melua.MiniTLV.INT_SIZE;
+import static org.melua.MiniTLV.SHORT_SIZE;
+import static org.melua.MiniTLV.TLV_MINSIZE;
+import static org.melua.MiniTLV.TYPE_ERROR;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.melua.api.Converter;
+import org.melua.api.RecordMap;
+import org.melua.api.View;
+
+public class MiniTLVView implements View {
+	
+	private final Converter converter;
+	private final ByteBuffer innerBuffer;
+	
+	protected MiniTLVView(ByteBuffer buffer, Converter converter) {
+		this.converter = converter;
+		this.innerBuffer = buffer.asReadOnlyBuffer();
+	}
+	
+	@Override
+	public ByteBuffer slice(byte... type) throws IOException {
+		
+		/*
+		 * Prevent bad TLV
+		 */
+		if (this.innerBuffer.remaining() < TLV_MINSIZE) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		/*
+		 * Prevent bad type
+		 */
+		if (type.length != BYTE_SIZE && type.length != SHORT_SIZE && type.length != INT_SIZE) {
+			throw new IllegalArgumentException(TYPE_ERROR);
+		}
+		
+		/*
+		 * Convert type byte array to integer
+		 */
+		int givenType = getConverter().convertToInt(type);
+		
+		/*
+		 * Move an independent cursor over the shared content
+		 */
+		ByteBuffer cursor = this.innerBuffer.duplicate();
+		
+		while (cursor.remaining() >= TLV_MINSIZE) {
+			
+			/*
+			 * Read 1st byte or next 2, 4-bytes if extended
+			 */
+			int currentType = MiniTLVParser.getInt(cursor);
+			
+			/*
+			 * Read 1st byte or next 2, 4-bytes if extended
+			 */
+			int length = MiniTLVParser.getInt(cursor);
+			
+			/*
+			 * Stop on truncated value
+			 */
+			if (length < 0 || cursor.remaining() < length) {
+				break;
+			}
+			
+			/*
+			 * Slice or skip value
+			 */
+			if (currentType == givenType) {
+				cursor.limit(cursor.position() + length);
+				return cursor.slice();
+			}
+			if (currentType == MiniTLV.COMPRESSED_TYPE) {
+				
+				/*
+				 * Decompress wrapped value of the given type
+				 */
+				ByteBuffer wrapped = cursor.duplicate();
+				wrapped.limit(cursor.position() + length);
+				if (MiniTLVParser.getInt(wrapped) == givenType) {
+					return ByteBuffer.wrap(MiniTLVCodecs.unwrap(wrapped)).asReadOnlyBuffer();
+				}
+			}
+			if (currentType == MiniTLV.ENCRYPTED_TYPE) {
+				
+				/*
+				 * Encrypted value of the given type is missing
+				 */
+				ByteBuffer wrapped = cursor.duplicate();
+				wrapped.limit(cursor.position() + length);
+				if (MiniTLVParser.getInt(wrapped) == givenType) {
+					return null;
+				}
+			}
+			cursor.position(cursor.position() + length);
+		}
+		
+		/*
+		 * Type not found
+		 */
+		return null;
+	}
+	
+	@Override
+	public RecordMap parseRecords() throws IOException {
+		
+		/*
+		 * Prevent bad TLV
+		 */
+		if (this.innerBuffer.remaining() < TLV_MINSIZE) {
+			throw new IllegalArgumentException(INPUT_ERROR);
+		}
+		
+		return new MiniTLVRecordMap(this.innerBuffer, MiniTLVIndex.scan(this.innerBuffer));
+	}
+	
+	@Override
+	public Converter getConverter() {
+		return this.converter;
+	}
+
+}
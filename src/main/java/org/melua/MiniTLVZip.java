@@ -0,0 +1,221 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.melua.MiniTLV.INPUT_ERROR;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded pools of reset Deflater and Inflater, shared by every thread,
+ * with or without zlib header and checksum.
+ * Instances are reset when released, and ended when the pool is full,
+ * so that native zlib memory never waits for finalization.
+ *
+ */
+final class MiniTLVZip {
+	
+	private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+	static final int BUFFER_SIZE = 8192;
+	
+	private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+	private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+	private static final BlockingQueue<Deflater> RAW_DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+	private static final BlockingQueue<Inflater> RAW_INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+	
+	private MiniTLVZip() {
+	}
+	
+	/**
+	 * Borrow a Deflater from the pool, or create one.
+	 * @param level of compression
+	 * @return deflater to give back with {@link #release(Deflater)}
+	 */
+	static Deflater deflater(int level) {
+		return deflater(level, false);
+	}
+	
+	/**
+	 * Borrow a Deflater from the pool, or create one.
+	 * @param level of compression
+	 * @param nowrap true to omit zlib header and checksum
+	 * @return deflater to give back with {@link #release(Deflater, boolean)}
+	 */
+	static Deflater deflater(int level, boolean nowrap) {
+		Deflater deflater = (nowrap ? RAW_DEFLATERS : DEFLATERS).poll();
+		if (deflater == null) {
+			return new Deflater(level, nowrap);
+		}
+		deflater.setLevel(level);
+		return deflater;
+	}
+	
+	/**
+	 * Borrow an Inflater from the pool, or create one.
+	 * @return inflater to give back with {@link #release(Inflater)}
+	 */
+	static Inflater inflater() {
+		return inflater(false);
+	}
+	
+	/**
+	 * Borrow an Inflater from the pool, or create one.
+	 * @param nowrap true to expect no zlib header and checksum
+	 * @return inflater to give back with {@link #release(Inflater, boolean)}
+	 */
+	static Inflater inflater(boolean nowrap) {
+		Inflater inflater = (nowrap ? RAW_INFLATERS : INFLATERS).poll();
+		return inflater == null ? new Inflater(nowrap) : inflater;
+	}
+	
+	/**
+	 * Reset the given Deflater and give it back to the pool,
+	 * or end it if the pool is full.
+	 * @param deflater to release
+	 */
+	static void release(Deflater deflater) {
+		release(deflater, false);
+	}
+	
+	/**
+	 * Reset the given Deflater and give it back to its pool,
+	 * or end it if the pool is full.
+	 * @param deflater to release
+	 * @param nowrap as borrowed
+	 */
+	static void release(Deflater deflater, boolean nowrap) {
+		deflater.reset();
+		if (!(nowrap ? RAW_DEFLATERS : DEFLATERS).offer(deflater)) {
+			deflater.end();
+		}
+	}
+	
+	/**
+	 * Reset the given Inflater and give it back to the pool,
+	 * or end it if the pool is full.
+	 * @param inflater to release
+	 */
+	static void release(Inflater inflater) {
+		release(inflater, false);
+	}
+	
+	/**
+	 * Reset the given Inflater and give it back to its pool,
+	 * or end it if the pool is full.
+	 * @param inflater to release
+	 * @param nowrap as borrowed
+	 */
+	static void release(Inflater inflater, boolean nowrap) {
+		inflater.reset();
+		if (!(nowrap ? RAW_INFLATERS : INFLATERS).offer(inflater)) {
+			inflater.end();
+		}
+	}
+	
+	/**
+	 * Compress the given bytes with a pooled Deflater.
+	 * @param data to compress
+	 * @param offset of the first byte
+	 * @param length number of bytes
+	 * @param level of compression
+	 * @param nowrap true to omit zlib header and checksum
+	 * @param output to write compressed data
+	 * @throws IOException
+	 */
+	static void deflate(byte[] data, int offset, int length, int level, boolean nowrap, OutputStream output) throws IOException {
+		deflate(data, offset, length, level, nowrap, null, output);
+	}
+	
+	/**
+	 * Compress the given bytes with a pooled Deflater
+	 * and the given preset dictionary.
+	 * @param data to compress
+	 * @param offset of the first byte
+	 * @param length number of bytes
+	 * @param level of compression
+	 * @param nowrap true to omit zlib header and checksum
+	 * @param dictionary preset, or null
+	 * @param output to write compressed data
+	 * @throws IOException
+	 */
+	static void deflate(byte[] data, int offset, int length, int level, boolean nowrap, byte[] dictionary, OutputStream output) throws IOException {
+		Deflater deflater = deflater(level, nowrap);
+		try {
+			if (dictionary != null) {
+				deflater.setDictionary(dictionary);
+			}
+			deflater.setInput(data, offset, length);
+			deflater.finish();
+			
+			byte[] buffer = new byte[Math.min(BUFFER_SIZE, length + 64)];
+			while (!deflater.finished()) {
+				output.write(buffer, 0, deflater.deflate(buffer));
+			}
+		} finally {
+			release(deflater, nowrap);
+		}
+	}
+	
+	/**
+	 * Decompress the given bytes with a pooled Inflater.
+	 * @param data to decompress
+	 * @param offset of the first byte
+	 * @param length number of bytes
+	 * @param nowrap true to expect no zlib header and checksum
+	 * @return decompressed data
+	 * @throws DataFormatException
+	 */
+	static byte[] inflate(byte[] data, int offset, int length, boolean nowrap) throws DataFormatException {
+		Inflater inflater = inflater(nowrap);
+		try {
+			inflater.setInput(data, offset, length);
+			
+			ByteArrayOutputStream output = new ByteArrayOutputStream(length * 2);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			boolean padded = false;
+			while (!inflater.finished()) {
+				int count = inflater.inflate(buffer);
+				if (count == 0 && !inflater.finished()) {
+					
+					/*
+					 * Raw inflating may need an extra dummy byte
+					 */
+					if (inflater.needsDictionary()) {
+						MiniTLVDictionary.setDictionary(inflater);
+					} else if (nowrap && !padded && inflater.needsInput()) {
+						inflater.setInput(new byte[1]);
+						padded = true;
+					} else if (inflater.needsInput()) {
+						throw new DataFormatException(INPUT_ERROR);
+					}
+				}
+				output.write(buffer, 0, count);
+			}
+			return output.toByteArray();
+		} finally {
+			release(inflater, nowrap);
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+package org.melua;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+import org.melua.api.Codec;
+
+public enum StandardCodec implements Codec {
+	
+	/**
+	 * No compression
+	 */
+	STORED(0x00) {
+		@Override
+		public void compress(byte[] data, int offset, int length, int level, OutputStream output) throws IOException {
+			output.write(data, offset, length);
+		}
+		
+		@Override
+		public byte[] decompress(byte[] data, int offset, int length) {
+			return Arrays.copyOfRange(data, offset, offset + length);
+		}
+	},
+	
+	/**
+	 * DEFLATE with zlib header and checksum
+	 */
+	DEFLATE(0x01) {
+		@Override
+		public void compress(byte[] data, int offset, int length, int level, OutputStream output) throws IOException {
+			MiniTLVZip.deflate(data, offset, length, level, false, output);
+		}
+		
+		@Override
+		public byte[] decompress(byte[] data, int offset, int length) throws DataFormatException {
+			return MiniTLVZip.inflate(data, offset, length, false);
+		}
+	},
+	
+	/**
+	 * DEFLATE without zlib header and checksum
+	 */
+	RAW_DEFLATE(0x02) {
+		@Override
+		public void compress(byte[] data, int offset, int length, int level, OutputStream output) throws IOException {
+			MiniTLVZip.deflate(data, offset, length, level, true, output);
+		}
+		
+		@Override
+		public byte[] decompress(byte[] data, int offset, int length) throws DataFormatException {
+			return MiniTLVZip.inflate(data, offset, length, true);
+		}
+	},
+	
+	/**
+	 * LZ4 block format, faster than DEFLATE with a lower ratio
+	 */
+	LZ4(0x03) {
+		@Override
+		public void compress(byte[] data, int offset, int length, int level, OutputStream output) throws IOException {
+			MiniTLVLz4.compress(data, offset, length, output);
+		}
+		
+		@Override
+		public byte[] decompress(byte[] data, int offset, int length) throws DataFormatException {
+			return MiniTLVLz4.decompress(data, offset, length);
+		}
+	};
+	
+	private byte id;
+	
+	StandardCodec(int id) {
+		this.id = (byte) id;
+	}
+	
+	@Override
+	public byte getId() {
+		return this.id;
+	}
+}
@@ -0,0 +1,61 @@
+package org.melua.api;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+
+/**
+ * Compression algorithm identified by one byte,
+ * written before the compressed data so that
+ * the decompressing side picks the same codec.
+ * Implementations are registered with
+ * {@link org.melua.MiniTLV#registerCodec(Codec) MiniTLV.registerCodec}
+ * or through {@link java.util.ServiceLoader ServiceLoader}.
+ *
+ */
+public interface Codec {
+	
+	/**
+	 * Retrieve the identifier written before the compressed data.
+	 * @return identifier
+	 */
+	byte getId();
+	
+	/**
+	 * Compress the given bytes.
+	 * @param data to compress
+	 * @param offset of the first byte
+	 * @param length number of bytes
+	 * @param level from 0 to 9, ignored by codecs without level
+	 * @param output to write compressed data
+	 * @throws IOException
+	 */
+	void compress(byte[] data, int offset, int length, int level, OutputStream output) throws IOException;
+	
+	/**
+	 * Decompress the given bytes.
+	 * @param data to decompress
+	 * @param offset of the first byte
+	 * @param length number of bytes
+	 * @return decompressed data
+	 * @throws DataFormatException
+	 */
+	byte[] decompress(byte[] data, int offset, int length) throws DataFormatException;
+
+}
@@ -17,6 +17,11 @@ package org.melua.api;
  */
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.zip.DataFormatException;
 
 public interface Compressor {
@@ -40,6 +45,53 @@ public interface Compressor {
 	 */
 	byte[] inflate(int bufferSize) throws IOException, DataFormatException;
 
+	/**
+	 * Compress the added bytes with the given codec,
+	 * preceded by its one-byte identifier.
+	 * @param codec to compress with
+	 * @return identifier and compressed data
+	 * @throws IOException
+	 */
+	byte[] compress(Codec codec) throws IOException;
+	
+	/**
+	 * Compress the added bytes with the given codec,
+	 * preceded by its one-byte identifier, only if it pays off.
+	 * The first 4 KiB are trial-compressed at best speed and,
+	 * like the whole result, must shrink by at least the given gain;
+	 * otherwise the bytes are stored as they are, preceded by the
+	 * {@link org.melua.StandardCodec#STORED STORED} identifier.
+	 * The level is picked by size with {@link org.melua.Level#forSize(long) Level.forSize}.
+	 * @param codec to compress with
+	 * @param minGain minimum size reduction, from 0 (inclusive) to 1 (exclusive)
+	 * @return identifier and compressed or stored data
+	 * @throws IOException
+	 */
+	byte[] compressAdaptive(Codec codec, double minGain) throws IOException;
+	
+	/**
+	 * Compress the added bytes with DEFLATE and the given preset dictionary,
+	 * preceded by the DEFLATE codec identifier.
+	 * The dictionary identifier is written in the zlib header,
+	 * and the dictionary must be registered on the decompressing side with
+	 * {@link org.melua.MiniTLV#registerDictionary(byte[]) MiniTLV.registerDictionary}.
+	 * @param dictionary preset, as trained by
+	 * {@link org.melua.MiniTLV#trainDictionary(java.util.Collection, int) MiniTLV.trainDictionary}
+	 * @return identifier and compressed data
+	 * @throws IOException
+	 */
+	byte[] compress(byte[] dictionary) throws IOException;
+	
+	/**
+	 * Decompress the added bytes with the codec
+	 * identified by their first byte,
+	 * and the registered preset dictionary if any.
+	 * @return decompressed data
+	 * @throws IOException
+	 * @throws DataFormatException if the codec is unknown or the data invalid
+	 */
+	byte[] decompress() throws IOException, DataFormatException;
+
 	/**
 	 * Add the given bytes to buffer
 	 * for later processing
@@ -48,5 +100,57 @@ public interface Compressor {
 	 * @throws IOException
 	 */
 	Compressor add(byte[] data) throws IOException;
+	
+	/**
+	 * Compress the given channel to its end into the given channel,
+	 * through fixed-size buffers, without the added bytes.
+	 * @param input to compress
+	 * @param output to write compressed data
+	 * @param bufferSize in bytes
+	 * @return number of compressed bytes
+	 * @throws IOException
+	 */
+	long deflate(ReadableByteChannel input, WritableByteChannel output, int bufferSize) throws IOException;
+	
+	/**
+	 * Decompress the given channel into the given channel,
+	 * through fixed-size buffers, without the added bytes.
+	 * Bytes following the compressed data may be consumed.
+	 * @param input to decompress
+	 * @param output to write decompressed data
+	 * @param bufferSize in bytes
+	 * @return number of decompressed bytes
+	 * @throws IOException
+	 * @throws DataFormatException
+	 */
+	long inflate(ReadableByteChannel input, WritableByteChannel output, int bufferSize) throws IOException, DataFormatException;
+	
+	/**
+	 * Compress the given stream to its end into the given stream,
+	 * through fixed-size buffers, without the added bytes.
+	 * @param input to compress
+	 * @param output to write compressed data
+	 * @param bufferSize in bytes
+	 * @return number of compressed bytes
+	 * @throws IOException
+	 */
+	default long deflate(InputStream input, OutputStream output, int bufferSize) throws IOException {
+		return deflate(Channels.newChannel(input), Channels.newChannel(output), bufferSize);
+	}
+	
+	/**
+	 * Decompress the given stream into the given stream,
+	 * through fixed-size buffers, without the added bytes.
+	 * Bytes following the compressed data may be consumed.
+	 * @param input to decompress
+	 * @param output to write decompressed data
+	 * @param bufferSize in bytes
+	 * @return number of decompressed bytes
+	 * @throws IOException
+	 * @throws DataFormatException
+	 */
+	default long inflate(InputStream input, OutputStream output, int bufferSize) throws IOException, DataFormatException {
+		return inflate(Channels.newChannel(input), Channels.newChannel(output), bufferSize);
+	}
 
 }
\ No newline at end of file
@@ -16,6 +16,8 @@ package org.melua.api;
  * limitations under the License.
  */
 
+import java.util.Arrays;
+
 public interface Converter {
 	
 	/**
@@ -39,5 +41,28 @@ public interface Converter {
 	 * @return byte array
 	 */
 	byte[] convertToBytes(int value);
+	
+	/**
+	 * Read a 1, 2 or 4-bytes integer from the given array.
+	 * @param src array to read
+	 * @param off offset of the first byte
+	 * @param len number of bytes, 1, 2 or 4
+	 * @return integer
+	 */
+	default int readInt(byte[] src, int off, int len) {
+		return convertToInt(Arrays.copyOfRange(src, off, off + len));
+	}
+	
+	/**
+	 * Write the given integer as 1, 2 or 4-bytes into the given array.
+	 * @param dst array to write
+	 * @param off offset of the first byte
+	 * @param value to convert
+	 * @param len number of bytes, 1, 2 or 4
+	 */
+	default void writeInt(byte[] dst, int off, int value, int len) {
+		byte[] bytes = len == Short.BYTES ? convertToBytes((short) value) : convertToBytes(value);
+		System.arraycopy(bytes, bytes.length - len, dst, off, len);
+	}
 
 }
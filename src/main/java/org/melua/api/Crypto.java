@@ -17,6 +17,11 @@ package org.melua.api;
  */
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.GeneralSecurityException;
 
 public interface Crypto {
@@ -48,4 +53,75 @@ public interface Crypto {
 	 */
 	Crypto add(byte[] data) throws IOException;
 
+	/**
+	 * Wrap the given stream to encrypt the written bytes by chunks of the given size with AES-GCM.
+	 * Closing the returned stream writes the last chunk.
+	 * @param output to write encrypted data
+	 * @param secret used for encryption
+	 * @param chunkSize in bytes
+	 * @return encrypting stream
+	 * @throws GeneralSecurityException
+	 */
+	OutputStream encryptStream(OutputStream output, String secret, int chunkSize) throws GeneralSecurityException;
+
+	/**
+	 * Wrap the given stream to decrypt chunks written by {@link #encryptStream(OutputStream, String, int)},
+	 * checking each chunk before returning its bytes.
+	 * @param input to decrypt
+	 * @param secret used for decryption
+	 * @return decrypting stream
+	 */
+	InputStream decryptStream(InputStream input, String secret);
+
+	/**
+	 * Encrypt the given channel to its end into the given channel,
+	 * by chunks of the given size with AES-GCM.
+	 * @param input to encrypt
+	 * @param output to write encrypted data
+	 * @param secret used for encryption
+	 * @param chunkSize in bytes
+	 * @return number of encrypted bytes, without chunk headers and tags
+	 * @throws IOException
+	 * @throws GeneralSecurityException
+	 */
+	long encrypt(ReadableByteChannel input, WritableByteChannel output, String secret, int chunkSize) throws IOException, GeneralSecurityException;
+
+	/**
+	 * Decrypt the given channel into the given channel, up to the last chunk.
+	 * A tampered or truncated chunk is reported as corrupted.
+	 * @param input to decrypt
+	 * @param output to write decrypted data
+	 * @param secret used for decryption
+	 * @return number of decrypted bytes
+	 * @throws IOException
+	 */
+	long decrypt(ReadableByteChannel input, WritableByteChannel output, String secret) throws IOException;
+
+	/**
+	 * Encrypt the given stream to its end into the given stream,
+	 * by chunks of the given size with AES-GCM.
+	 * @param input to encrypt
+	 * @param output to write encrypted data
+	 * @param secret used for encryption
+	 * @param chunkSize in bytes
+	 * @return number of encrypted bytes, without chunk headers and tags
+	 * @throws IOException
+	 * @throws GeneralSecurityException
+	 */
+	default long encrypt(InputStream input, OutputStream output, String secret, int chunkSize) throws IOException, GeneralSecurityException {
+		return encrypt(Channels.newChannel(input), Channels.newChannel(output), secret, chunkSize);
+	}
+
+	/**
+	 * Decrypt the given stream into the given stream, up to the last chunk.
+	 * @param input to decrypt
+	 * @param output to write decrypted data
+	 * @param secret used for decryption
+	 * @return number of decrypted bytes
+	 * @throws IOException
+	 */
+	default long decrypt(InputStream input, OutputStream output, String secret) throws IOException {
+		return decrypt(Channels.newChannel(input), Channels.newChannel(output), secret);
+	}
+
 }
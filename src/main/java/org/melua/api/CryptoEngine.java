@@ -0,0 +1,46 @@
+package org.melua.api;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Stateless encryption with a derived key per salt,
+ * safe to share between threads for any number of messages.
+ *
+ */
+public interface CryptoEngine {
+
+	/**
+	 * Encrypt the given data using given secret.
+	 * @param data to encrypt
+	 * @param secret used for encryption
+	 * @return encrypted data with salt
+	 * @throws GeneralSecurityException
+	 */
+	byte[] encrypt(byte[] data, String secret) throws GeneralSecurityException;
+
+	/**
+	 * Decrypt the given data with salt using given secret.
+	 * @param data to decrypt
+	 * @param secret used for decryption
+	 * @return decrypted data
+	 * @throws GeneralSecurityException
+	 */
+	byte[] decrypt(byte[] data, String secret) throws GeneralSecurityException;
+
+}
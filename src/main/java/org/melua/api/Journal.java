@@ -0,0 +1,145 @@
+package org.melua.api;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+public interface Journal extends Closeable {
+	
+	/**
+	 * Retrieve the inner bytes converter
+	 * @return Converter
+	 */
+	Converter getConverter();
+	
+	/**
+	 * Append a Type-Length-Value for the given type and value
+	 * to the current segment, rolling to a new segment when full.
+	 * The reserved {@link org.melua.MiniTLV#COMPRESSED_TYPE COMPRESSED_TYPE}
+	 * and {@link org.melua.MiniTLV#ENCRYPTED_TYPE ENCRYPTED_TYPE} are refused.
+	 *
+	 * @param value for the given type
+	 * @param type to write
+	 * @return this
+	 * @throws IOException
+	 */
+	Journal append(byte[] value, byte... type) throws IOException;
+	
+	/**
+	 * Read the last appended value for the given 1, 2 or 4-bytes type.
+	 *
+	 * @param type to search for
+	 * @return value for the given type
+	 * @throws IOException
+	 */
+	byte[] read(byte... type) throws IOException;
+	
+	/**
+	 * Read every appended value for the given 1, 2 or 4-bytes type,
+	 * in appending order.
+	 *
+	 * @param type to search for
+	 * @return values for the given type
+	 * @throws IOException
+	 */
+	List<byte[]> readAll(byte... type) throws IOException;
+	
+	/**
+	 * Retrieve the number of appended records.
+	 * @return size
+	 */
+	int size();
+	
+	/**
+	 * Force the appended records, then their index entries, to the storage device.
+	 *
+	 * @throws IOException
+	 */
+	void sync() throws IOException;
+	
+	/**
+	 * Append a Type-Length-Value for the given byte type and value.
+	 * 
+	 * @param value for the given type
+	 * @param type to write
+	 * @return this
+	 * @throws IOException
+	 */
+	default Journal append(byte[] value, byte type) throws IOException {
+		return append(value, new byte[]{type});
+	}
+	
+	/**
+	 * Append a Type-Length-Value for the given short type and value.
+	 * 
+	 * @param value for the given type
+	 * @param type to write
+	 * @return this
+	 * @throws IOException
+	 */
+	default Journal append(byte[] value, short type) throws IOException {
+		return append(value, getConverter().convertToBytes(type));
+	}
+	
+	/**
+	 * Append a Type-Length-Value for the given integer type and value.
+	 * 
+	 * @param value for the given type
+	 * @param type to write
+	 * @return this
+	 * @throws IOException
+	 */
+	default Journal append(byte[] value, int type) throws IOException {
+		return append(value, getConverter().convertToBytes(type));
+	}
+	
+	/**
+	 * Read the last appended value for the given byte type.
+	 * 
+	 * @param type to search for
+	 * @return value for the given type
+	 * @throws IOException
+	 */
+	default byte[] read(byte type) throws IOException {
+		return read(new byte[]{type});
+	}
+	
+	/**
+	 * Read the last appended value for the given short type.
+	 * 
+	 * @param type to search for
+	 * @return value for the given type
+	 * @throws IOException
+	 */
+	default byte[] read(short type) throws IOException {
+		return read(getConverter().convertToBytes(type));
+	}
+	
+	/**
+	 * Read the last appended value for the given integer type.
+	 * 
+	 * @param type to search for
+	 * @return value for the given type
+	 * @throws IOException
+	 */
+	default byte[] read(int type) throws IOException {
+		return read(getConverter().convertToBytes(type));
+	}
+
+}
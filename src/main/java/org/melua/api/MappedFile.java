@@ -0,0 +1,119 @@
+package org.melua.api;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+public interface MappedFile extends Closeable {
+	
+	/**
+	 * Retrieve the inner bytes converter
+	 * @return Converter
+	 */
+	Converter getConverter();
+	
+	/**
+	 * Retrieve the number of distinct types in the file.
+	 * @return size
+	 */
+	int size();
+	
+	/**
+	 * Slice the mapped value for the given 1, 2 or 4-bytes type.
+	 * From 0x01 (1) to 0xff (255) the type must be represented as one byte.
+	 * From 0x0100 (256) to 0xffff (65535) the type must be represented as two bytes,
+	 * from 0x010000 (65536) to 0xffffffff (4294967295) the type must be represented as four bytes,
+	 * and must be given in {@link ByteOrder#BIG_ENDIAN} order.
+	 * 
+	 * @param type to search for
+	 * @return read-only slice of the value for the given type
+	 * @throws IOException
+	 */
+	ByteBuffer slice(byte... type) throws IOException;
+	
+	/**
+	 * Perform the given operation on each type and value of the file,
+	 * in reading order, as read-only slices without copy.
+	 * 
+	 * @param consumer of type and value
+	 * @throws IOException
+	 */
+	void forEach(IntObjConsumer<ByteBuffer> consumer) throws IOException;
+	
+	/**
+	 * Perform the given operation on each type and value of the file
+	 * in parallel on the given executor, as read-only slices without copy.
+	 * Record boundaries are found once when the file is opened,
+	 * then chunks of records are read concurrently,
+	 * each chunk in reading order.
+	 * 
+	 * @param consumer of type and value, called concurrently
+	 * @param executor to run the reading tasks
+	 * @throws IOException
+	 */
+	void forEachParallel(IntObjConsumer<ByteBuffer> consumer, ExecutorService executor) throws IOException;
+	
+	/**
+	 * Perform the given operation on each type and value of the file
+	 * in parallel on the {@link ForkJoinPool#commonPool() common pool}.
+	 * 
+	 * @param consumer of type and value, called concurrently
+	 * @throws IOException
+	 */
+	default void forEachParallel(IntObjConsumer<ByteBuffer> consumer) throws IOException {
+		forEachParallel(consumer, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Slice the mapped value for the given byte type.
+	 * 
+	 * @param type to search for
+	 * @return read-only slice of the value for the given type
+	 * @throws IOException
+	 */
+	default ByteBuffer slice(byte type) throws IOException {
+		return slice(new byte[]{type});
+	}
+	
+	/**
+	 * Slice the mapped value for the given short type.
+	 * 
+	 * @param type to search for
+	 * @return read-only slice of the value for the given type
+	 * @throws IOException
+	 */
+	default ByteBuffer slice(short type) throws IOException {
+		return slice(getConverter().convertToBytes(type));
+	}
+	
+	/**
+	 * Slice the mapped value for the given integer type.
+	 * 
+	 * @param type to search for
+	 * @return read-only slice of the value for the given type
+	 * @throws IOException
+	 */
+	default ByteBuffer slice(int type) throws IOException {
+		return slice(getConverter().convertToBytes(type));
+	}
+
+}
@@ -38,6 +38,46 @@ public interface Parser {
 	 */
 	Parser read(byte[] tlv) throws IOException;
 	
+	/**
+	 * Scan the buffered Type-Length-Value bytes once and build an offset table,
+	 * so that following calls to {@link #parse(byte...)} no longer rescan the bytes.
+	 * The table is dropped by the next {@link #read(byte[])}.
+	 * Defaults to no indexing, each call then scanning the bytes.
+	 *
+	 * @return this
+	 * @throws IOException
+	 */
+	default Parser index() throws IOException {
+		return this;
+	}
+	
+	/**
+	 * Clear the buffered bytes, offset table and decryption session, keeping the grown buffer,
+	 * so that this instance can parse another message.
+	 *
+	 * @return this
+	 * @throws UnsupportedOperationException if the implementation does not support it
+	 */
+	default Parser reset() {
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Decrypt with the given session the values of
+	 * {@link org.melua.MiniTLV#ENCRYPTED_TYPE ENCRYPTED_TYPE} records,
+	 * only when their type is requested.
+	 * Without session, encrypted values are parsed as missing,
+	 * as are later values of the same type, the first value of a type being the one parsed.
+	 * Disabled by {@link #reset()} or a null session.
+	 *
+	 * @param session to decrypt values with
+	 * @return this
+	 * @throws UnsupportedOperationException if the implementation does not support it
+	 */
+	default Parser decrypt(Session session) {
+		throw new UnsupportedOperationException();
+	}
+	
 	/**
 	 * Read the Type-Length-Value bytes and extract value for the given 1, 2 or 4-bytes type.
 	 * From 0x01 (1) to 0xff (255) the type must be represented as one byte.
@@ -60,6 +100,18 @@ public interface Parser {
 	 */
 	Map<Integer, byte[]> parse() throws IOException;
 	
+	/**
+	 * Read the Type-Length-Value bytes and extract types and associated values
+	 * into a map keyed by integer type, whose values are copied only when requested.
+	 *
+	 * @return values
+	 * @throws IOException
+	 * @throws UnsupportedOperationException if the implementation does not support it
+	 */
+	default RecordMap parseRecords() throws IOException {
+		throw new UnsupportedOperationException();
+	}
+	
 	/**
 	 * Read the Type-Length-Value bytes and extract value for the given byte type.
 	 * 
@@ -0,0 +1,136 @@
+package org.melua.api;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.melua.Algorithm;
+import org.melua.Level;
+
+/**
+ * Stages between Type-Length-Value records and their stored bytes:
+ * records are streamed through compression, then chunked AES-GCM encryption,
+ * into the output without buffering the whole message at each stage.
+ * Reading runs the same stages in reverse, so it needs the same configuration.
+ *
+ */
+public interface Pipeline {
+	
+	/**
+	 * Compress the records with DEFLATE at the given level,
+	 * or stop compressing them with a null level.
+	 *
+	 * @param level of compression
+	 * @return this
+	 */
+	Pipeline compress(Level level);
+	
+	/**
+	 * Encrypt the compressed records by chunks with AES-GCM
+	 * and a key derived from the given secret,
+	 * or stop encrypting them with a null secret.
+	 * Reading only needs the secret, the key length being stored.
+	 *
+	 * @param algo of encryption
+	 * @param secret used for encryption and decryption
+	 * @return this
+	 */
+	Pipeline encrypt(Algorithm algo, String secret);
+	
+	/**
+	 * Stream the records of the given serializer through the stages into the given stream,
+	 * which is left open.
+	 *
+	 * @param serializer of the records
+	 * @param output to write
+	 * @return number of Type-Length-Value bytes written through the stages
+	 * @throws IOException
+	 */
+	long write(Serializer serializer, OutputStream output) throws IOException;
+	
+	/**
+	 * Stream the records of the given serializer through the stages into the given channel,
+	 * which is left open.
+	 *
+	 * @param serializer of the records
+	 * @param output to write
+	 * @return number of Type-Length-Value bytes written through the stages
+	 * @throws IOException
+	 */
+	default long write(Serializer serializer, WritableByteChannel output) throws IOException {
+		return write(serializer, Channels.newOutputStream(output));
+	}
+	
+	/**
+	 * Stream the records of the given serializer through the stages into one array.
+	 *
+	 * @param serializer of the records
+	 * @return stored bytes
+	 * @throws IOException
+	 */
+	default byte[] write(Serializer serializer) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		write(serializer, output);
+		return output.toByteArray();
+	}
+	
+	/**
+	 * Read the given stream to its end through the stages in reverse,
+	 * and buffer the Type-Length-Value bytes into the given parser.
+	 * Altered or truncated bytes are reported as corrupted.
+	 *
+	 * @param input to read
+	 * @param parser to fill
+	 * @return the given parser
+	 * @throws IOException
+	 */
+	Parser read(InputStream input, Parser parser) throws IOException;
+	
+	/**
+	 * Read the given channel to its end through the stages in reverse,
+	 * and buffer the Type-Length-Value bytes into the given parser.
+	 *
+	 * @param input to read
+	 * @param parser to fill
+	 * @return the given parser
+	 * @throws IOException
+	 */
+	default Parser read(ReadableByteChannel input, Parser parser) throws IOException {
+		return read(Channels.newInputStream(input), parser);
+	}
+	
+	/**
+	 * Read the given bytes through the stages in reverse,
+	 * and buffer the Type-Length-Value bytes into the given parser.
+	 *
+	 * @param data to read
+	 * @param parser to fill
+	 * @return the given parser
+	 * @throws IOException
+	 */
+	default Parser read(byte[] data, Parser parser) throws IOException {
+		return read(new ByteArrayInputStream(data), parser);
+	}
+
+}
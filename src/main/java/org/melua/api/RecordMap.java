@@ -0,0 +1,78 @@
+package org.melua.api;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Types and values read from Type-Length-Value bytes,
+ * keyed by integer type without boxing.
+ * Values stay in the read bytes until they are requested:
+ * {@link #slice(int)} never copies, {@link #get(int)} copies once
+ * and keeps the copy for the next calls.
+ * Compressed values are decompressed on first access only,
+ * and encrypted values decrypted on first access with the session of the parser.
+ * Without session, an encrypted value is missing,
+ * and so are the later values of its type, the first value of a type being kept.
+ *
+ */
+public interface RecordMap {
+	
+	/**
+	 * Retrieve the number of types.
+	 * @return size
+	 */
+	int size();
+	
+	/**
+	 * Check whether the given type has been read.
+	 * @param type to search for
+	 * @return true if present
+	 */
+	boolean containsKey(int type);
+	
+	/**
+	 * Retrieve the value for the given type,
+	 * copied from the read bytes on first access.
+	 * @param type to search for
+	 * @return value for the given type
+	 */
+	byte[] get(int type);
+	
+	/**
+	 * Retrieve the value for the given type
+	 * as a read-only slice of the read bytes, without copy.
+	 * @param type to search for
+	 * @return read-only slice of the value for the given type
+	 */
+	ByteBuffer slice(int type);
+	
+	/**
+	 * Perform the given operation on each type and value,
+	 * in reading order, copying values on first access.
+	 * @param consumer of type and value
+	 */
+	void forEach(IntObjConsumer<byte[]> consumer);
+	
+	/**
+	 * Perform the given operation on each type and value,
+	 * in reading order, as read-only slices without copy.
+	 * @param consumer of type and value
+	 */
+	void forEachSlice(IntObjConsumer<ByteBuffer> consumer);
+
+}
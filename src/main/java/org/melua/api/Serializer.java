@@ -17,6 +17,9 @@ package org.melua.api;
  */
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 
 /*
  * Copyright (C) 2018 Kevin Guignard
@@ -46,7 +49,11 @@ public interface Serializer {
 	
 	/**
 	 * Add type/value to buffer
-	 * for later serialization
+	 * for later serialization.
+	 * The value is copied, records keep their insertion order
+	 * and a type may be written more than once,
+	 * except the reserved {@link org.melua.MiniTLV#COMPRESSED_TYPE COMPRESSED_TYPE}
+	 * and {@link org.melua.MiniTLV#ENCRYPTED_TYPE ENCRYPTED_TYPE}.
 	 *
 	 * @param value for the given type
 	 * @param type to write
@@ -54,6 +61,22 @@ public interface Serializer {
 	 */
 	Serializer write(byte[] value, byte... type);
 	
+	/**
+	 * Compute the exact size of the buffered types and values
+	 * in Type-Length-Value representation, including extended marks.
+	 * Defaults to the length of {@link #serialize()}.
+	 *
+	 * @return size in bytes
+	 * @throws UncheckedIOException if the serialization fails
+	 */
+	default int encodedSize() {
+		try {
+			return serialize().length;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
 	/**
 	 * Write a Type-Length-Value and store them as 1, 2 or 4-bytes.
 	 * @see #deflate(byte[], int)
@@ -62,6 +85,74 @@ public interface Serializer {
 	 * @throws IOException 
 	 */
 	byte[] serialize() throws IOException;
+	
+	/**
+	 * Write the Type-Length-Value records straight into the given
+	 * heap or direct buffer, from its current position, without intermediate arrays.
+	 * 
+	 * @param target buffer to fill
+	 * @return number of bytes written
+	 * @throws BufferOverflowException if the remaining space is too small,
+	 * in which case nothing is written
+	 * @throws UncheckedIOException if the serialization fails
+	 */
+	default int serializeTo(ByteBuffer target) {
+		byte[] tlv;
+		try {
+			tlv = serialize();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (target.remaining() < tlv.length) {
+			throw new BufferOverflowException();
+		}
+		target.put(tlv);
+		return tlv.length;
+	}
+	
+	/**
+	 * Clear the buffered types and values, keeping the grown buffers,
+	 * so that this instance can serialize another message,
+	 * and disable value compression and encryption.
+	 *
+	 * @return this
+	 * @throws UnsupportedOperationException if the implementation does not support it
+	 */
+	default Serializer reset() {
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Compress the values written from now on whose length reaches the given threshold,
+	 * each one wrapped in a {@link org.melua.MiniTLV#COMPRESSED_TYPE COMPRESSED_TYPE} record
+	 * with its type, unless compression does not make it smaller.
+	 * Parsers decompress such a value only when its type is requested.
+	 * Disabled by {@link #reset()}.
+	 *
+	 * @param codec to compress values with
+	 * @param threshold minimum length of compressed values, in bytes
+	 * @return this
+	 * @throws UnsupportedOperationException if the implementation does not support it
+	 */
+	default Serializer compress(Codec codec, int threshold) {
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Encrypt the values written from now on with the given session,
+	 * each one wrapped in a {@link org.melua.MiniTLV#ENCRYPTED_TYPE ENCRYPTED_TYPE} record
+	 * with its type, leaving the values written before readable without decryption.
+	 * Encrypted values are not compressed.
+	 * Parsers decrypt such a value only when its type is requested.
+	 * Disabled by {@link #reset()} or a null session.
+	 *
+	 * @param session to encrypt values with
+	 * @return this
+	 * @throws UnsupportedOperationException if the implementation does not support it
+	 */
+	default Serializer encrypt(Session session) {
+		throw new UnsupportedOperationException();
+	}
 
 	/**
 	 * Write a Type-Length-Value for the given byte type and value,
@@ -0,0 +1,49 @@
+package org.melua.api;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Encryption with one key derived for many messages:
+ * each message carries the salt of the key and its own nonce,
+ * and is authenticated with AES-GCM.
+ *
+ */
+public interface Session {
+	
+	/**
+	 * Encrypt the given data with the session key and a new nonce.
+	 * @param data to encrypt
+	 * @return salt, nonce and encrypted data with tag
+	 * @throws GeneralSecurityException
+	 */
+	byte[] encrypt(byte[] data) throws GeneralSecurityException;
+	
+	/**
+	 * Decrypt the given data from this or another session with the same secret,
+	 * deriving the key of another salt only once.
+	 * Since the salt is read from the data, each unknown salt, even forged,
+	 * costs a PBKDF2 derivation and may evict a cached key;
+	 * sessions refusing other salts avoid it.
+	 * @param data to decrypt
+	 * @return decrypted data
+	 * @throws GeneralSecurityException if the data was altered or the secret differs
+	 */
+	byte[] decrypt(byte[] data) throws GeneralSecurityException;
+
+}
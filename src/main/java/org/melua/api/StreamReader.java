@@ -0,0 +1,63 @@
+package org.melua.api;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+public interface StreamReader extends Closeable {
+	
+	/**
+	 * Read the next Type-Length-Value header from the stream,
+	 * skipping whatever is left of the current value.
+	 *
+	 * @return false at the end of the stream
+	 * @throws IOException
+	 */
+	boolean next() throws IOException;
+	
+	/**
+	 * Retrieve the type of the current record.
+	 * @return type
+	 */
+	int getType();
+	
+	/**
+	 * Retrieve the length of the current value.
+	 * @return length in bytes
+	 */
+	int getLength();
+	
+	/**
+	 * Read what is left of the current value into a new array.
+	 *
+	 * @return value
+	 * @throws IOException
+	 */
+	byte[] getValue() throws IOException;
+	
+	/**
+	 * Retrieve a channel reading what is left of the current value,
+	 * so that large values can be consumed without buffering them.
+	 * The channel is no longer valid after {@link #next()}.
+	 *
+	 * @return value channel
+	 */
+	ReadableByteChannel getValueChannel();
+
+}
@@ -0,0 +1,107 @@
+package org.melua.api;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+public interface StreamWriter extends Closeable, Flushable {
+	
+	/**
+	 * Retrieve the inner bytes converter
+	 * @return Converter
+	 */
+	Converter getConverter();
+	
+	/**
+	 * Write a Type-Length-Value for the given type and value
+	 * to the stream, through the inner buffer.
+	 * The reserved {@link org.melua.MiniTLV#COMPRESSED_TYPE COMPRESSED_TYPE}
+	 * and {@link org.melua.MiniTLV#ENCRYPTED_TYPE ENCRYPTED_TYPE} are refused.
+	 *
+	 * @param value for the given type
+	 * @param type to write
+	 * @return this
+	 * @throws IOException
+	 */
+	StreamWriter write(byte[] value, byte... type) throws IOException;
+	
+	/**
+	 * Write a Type-Length-Value for the given type and value of known length
+	 * to the stream, copying the value through the inner buffer.
+	 *
+	 * @param value stream for the given type
+	 * @param length of the value
+	 * @param type to write
+	 * @return this
+	 * @throws IOException
+	 */
+	StreamWriter write(InputStream value, int length, byte... type) throws IOException;
+	
+	/**
+	 * Write a Type-Length-Value for the given byte type and value.
+	 * 
+	 * @param value for the given type
+	 * @param type to write
+	 * @return this
+	 * @throws IOException
+	 */
+	default StreamWriter write(byte[] value, byte type) throws IOException {
+		return write(value, new byte[]{type});
+	}
+	
+	/**
+	 * Write a Type-Length-Value for the given short type and value.
+	 * 
+	 * @param value for the given type
+	 * @param type to write
+	 * @return this
+	 * @throws IOException
+	 */
+	default StreamWriter write(byte[] value, short type) throws IOException {
+		return write(value, getConverter().convertToBytes(type));
+	}
+	
+	/**
+	 * Write a Type-Length-Value for the given integer type and value.
+	 * 
+	 * @param value for the given type
+	 * @param type to write
+	 * @return this
+	 * @throws IOException
+	 */
+	default StreamWriter write(byte[] value, int type) throws IOException {
+		return write(value, getConverter().convertToBytes(type));
+	}
+	
+	/**
+	 * Write a Type-Length-Value for the given type and string value.
+	 * 
+	 * @param value for the given type
+	 * @param charset of the value
+	 * @param type to write
+	 * @return this
+	 * @throws IOException
+	 */
+	default StreamWriter write(String value, Charset charset, byte... type) throws IOException {
+		return write(value.getBytes(charset), type);
+	}
+
+}
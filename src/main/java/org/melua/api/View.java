@@ -0,0 +1,87 @@
+package org.melua.api;
+
+/*
+ * Copyright (C) 2018 Kevin Guignard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public interface View {
+	
+	/**
+	 * Retrieve the inner bytes converter
+	 * @return Converter
+	 */
+	Converter getConverter();
+	
+	/**
+	 * Read the Type-Length-Value bytes in place and slice the value for the given 1, 2 or 4-bytes type.
+	 * From 0x01 (1) to 0xff (255) the type must be represented as one byte.
+	 * From 0x0100 (256) to 0xffff (65535) the type must be represented as two bytes,
+	 * from 0x010000 (65536) to 0xffffffff (4294967295) the type must be represented as four bytes,
+	 * and must be given in {@link ByteOrder#BIG_ENDIAN} order.
+	 * No value is copied: the slice shares the content of the viewed buffer.
+	 * 
+	 * @param type to search for
+	 * @return read-only slice of the value for the given type
+	 * @throws IOException
+	 */
+	ByteBuffer slice(byte... type) throws IOException;
+	
+	/**
+	 * Read the Type-Length-Value bytes in place and extract types and associated values
+	 * into a map keyed by integer type, whose values are sliced or copied only when requested.
+	 *
+	 * @return values
+	 * @throws IOException
+	 */
+	RecordMap parseRecords() throws IOException;
+	
+	/**
+	 * Read the Type-Length-Value bytes in place and slice the value for the given byte type.
+	 * 
+	 * @param type to search for
+	 * @return read-only slice of the value for the given type
+	 * @throws IOException
+	 */
+	default ByteBuffer slice(byte type) throws IOException {
+		return slice(new byte[]{type});
+	}
+	
+	/**
+	 * Read the Type-Length-Value bytes in place and slice the value for the given short type.
+	 * 
+	 * @param type to search for
+	 * @return read-only slice of the value for the given type
+	 * @throws IOException
+	 */
+	default ByteBuffer slice(short type) throws IOException {
+		return slice(getConverter().convertToBytes(type));
+	}
+	
+	/**
+	 * Read the Type-Length-Value bytes in place and slice the value for the given integer type.
+	 * 
+	 * @param type to search for
+	 * @return read-only slice of the value for the given type
+	 * @throws IOException
+	 */
+	default ByteBuffer slice(int type) throws IOException {
+		return slice(getConverter().convertToBytes(type));
+	}
+
+}
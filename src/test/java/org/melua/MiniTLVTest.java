@@ -1,20 +1,51 @@
 package org.melua;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.StreamCorruptedException;
+import java.io.InputStream;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.DataFormatException;
 
-import javax.xml.bind.DatatypeConverter;
-
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.RandomUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.melua.api.Converter;
+import org.melua.api.Crypto;
+import org.melua.api.CryptoEngine;
+import org.melua.api.Journal;
+import org.melua.api.MappedFile;
+import org.melua.api.Parser;
+import org.melua.api.Pipeline;
+import org.melua.api.RecordMap;
+import org.melua.api.Serializer;
+import org.melua.api.Session;
+import org.melua.api.StreamReader;
+import org.melua.api.StreamWriter;
 
 public class MiniTLVTest {
 	
@@ -31,17 +62,13 @@ public class MiniTLVTest {
 	
 	@Test
 	public void encDec1() throws IOException {
-		System.out.println("length = " + value.length());
-		System.out.println("value = " + value);
 		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_MAX);
 		buffer.put(MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, (byte)0x01).serialize());
 		buffer.flip();
 		byte[] tlv = new byte[buffer.limit()];
 		buffer.get(tlv, 0, buffer.limit());
-		System.out.println("tlv = " + DatatypeConverter.printHexBinary(tlv));
 		
 		String result = new String(MiniTLV.getReader().read(tlv).parse((byte)0x01), StandardCharsets.UTF_8);
-		System.out.println("decoded tlv = " + result);
 
 		Assert.assertNotNull(result);
 		Assert.assertEquals(value, result);
@@ -49,17 +76,13 @@ public class MiniTLVTest {
 	
 	@Test
 	public void encDec2() throws IOException {
-		System.out.println("length = " + value.length());
-		System.out.println("value = " + value);
 		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_MAX);
 		buffer.put(MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, (byte)0x01, (byte)0x01).serialize());
 		buffer.flip();
 		byte[] tlv = new byte[buffer.limit()];
 		buffer.get(tlv, 0, buffer.limit());
-		System.out.println("tlv = " + DatatypeConverter.printHexBinary(tlv));
 		
 		String result = new String(MiniTLV.getReader().read(tlv).parse((byte)0x01, (byte)0x01), StandardCharsets.UTF_8);
-		System.out.println("decoded tlv = " + result);
 
 		Assert.assertNotNull(result);
 		Assert.assertEquals(value, result);
@@ -67,17 +90,13 @@ public class MiniTLVTest {
 	
 	@Test
 	public void encDec3() throws IOException {
-		System.out.println("length = " + value.length());
-		System.out.println("value = " + value);
 		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_MAX);
 		buffer.put(MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, (byte)0x01, (byte)0x01, (byte)0x01, (byte)0x01).serialize());
 		buffer.flip();
 		byte[] tlv = new byte[buffer.limit()];
 		buffer.get(tlv, 0, buffer.limit());
-		System.out.println("tlv = " + DatatypeConverter.printHexBinary(tlv));
 		
 		String result = new String(MiniTLV.getReader().read(tlv).parse((byte)0x01, (byte)0x01, (byte)0x01, (byte)0x01), StandardCharsets.UTF_8);
-		System.out.println("decoded tlv = " + result);
 
 		Assert.assertNotNull(result);
 		Assert.assertEquals(value, result);
@@ -85,18 +104,13 @@ public class MiniTLVTest {
 	
 	@Test
 	public void encDec4() throws IOException {
-		System.out.println("type = " + type);
-		System.out.println("length = " + value.length());
-		System.out.println("value = " + value);
 		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_MAX);
 		buffer.put(MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, (short) type).serialize());
 		buffer.flip();
 		byte[] tlv = new byte[buffer.limit()];
 		buffer.get(tlv, 0, buffer.limit());
-		System.out.println("tlv = " + DatatypeConverter.printHexBinary(tlv));
 		
 		String result = new String(MiniTLV.getReader().read(tlv).parse((short) type), StandardCharsets.UTF_8);
-		System.out.println("decoded tlv = " + result);
 
 		Assert.assertNotNull(result);
 		Assert.assertEquals(value, result);
@@ -104,18 +118,13 @@ public class MiniTLVTest {
 	
 	@Test
 	public void encDec5() throws IOException {
-		System.out.println("type = " + type);
-		System.out.println("length = " + value.length());
-		System.out.println("value = " + value);
 		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_MAX);
 		buffer.put(MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, type).serialize());
 		buffer.flip();
 		byte[] tlv = new byte[buffer.limit()];
 		buffer.get(tlv, 0, buffer.limit());
-		System.out.println("tlv = " + DatatypeConverter.printHexBinary(tlv));
 		
 		String result = new String(MiniTLV.getReader().read(tlv).parse(type), StandardCharsets.UTF_8);
-		System.out.println("decoded tlv = " + result);
 
 		Assert.assertNotNull(result);
 		Assert.assertEquals(value, result);
@@ -123,23 +132,15 @@ public class MiniTLVTest {
 
 	@Test
 	public void encDec6() throws IOException, DataFormatException {
-		System.out.println("type = " + type);
-		System.out.println("length = " + value.length());
-		System.out.println("value = " + value);
 		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_MAX);
 		buffer.put(MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, type).serialize());
 
 		buffer.flip();
 		byte[] unCompressedTlv = new byte[buffer.limit()];
 		buffer.get(unCompressedTlv, 0, buffer.limit());
-		System.out.println("tlv = " + DatatypeConverter.printHexBinary(unCompressedTlv));
-		System.out.println("original: " + unCompressedTlv.length + "b");
 		byte[] compressedTlv = MiniTLV.getCompacter().add(unCompressedTlv).deflate(512);
-		System.out.println("compressed: " + compressedTlv.length + "b");
-		System.out.println("rate: " + (compressedTlv.length*100)/unCompressedTlv.length + "%");
 
 		String result = new String(MiniTLV.getReader().read(MiniTLV.getCompacter().add(compressedTlv).inflate(512)).parse(type), StandardCharsets.UTF_8);
-		System.out.println("decoded tlv = " + result);
 
 		Assert.assertNotNull(result);
 		Assert.assertEquals(value, result);
@@ -170,7 +171,6 @@ public class MiniTLVTest {
 		/*for (Entry<byte[], byte[]> entry : input.entrySet()) {
 			int type = new BigInteger(entry.getValue()).intValue();
 			Assert.assertTrue(output.containsKey(type));
-			System.out.println(DatatypeConverter.printHexBinary(entry.getKey()) + " : " + output.get(type));
 			Assert.assertEquals(String.valueOf(entry.getValue()), output.get(type));
 		}*/
 
@@ -188,15 +188,12 @@ public class MiniTLVTest {
 		byte[] tlv = new byte[buffer.limit()];
 		buffer.get(tlv, 0, buffer.limit());
 
-		System.out.println("tlv = " + DatatypeConverter.printHexBinary(tlv));
 
 		String value = new String(MiniTLV.getReader().read(tlv).parse((byte)0x01, (byte)0x01), StandardCharsets.UTF_8);
-		System.out.println("value = " + value);
 		Assert.assertNotNull(value);
 
 		Map<Integer, byte[]> output = MiniTLV.getReader().read(tlv).parse();
 		for (byte[] val : output.values()) {
-			System.out.println("value = " + val);
 			Assert.assertEquals(value, new String(val, StandardCharsets.UTF_8));
 		}
 
@@ -204,28 +201,931 @@ public class MiniTLVTest {
 
 	@Test
 	public void encDec9() throws IOException, GeneralSecurityException {
-		System.out.println("length = " + value.length());
-		System.out.println("value = " + value);
 		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_MAX);
 		buffer.put(MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, (byte)0x01).serialize());
 		buffer.flip();
 		byte[] tlv = new byte[buffer.limit()];
 		buffer.get(tlv, 0, buffer.limit());
-		System.out.println("tlv = " + DatatypeConverter.printHexBinary(tlv));
 
 		String secret = RandomStringUtils.random(RandomUtils.nextInt(100, 500));
 
 		byte[] encryptedTlv = MiniTLV.getCipher().add(tlv).encrypt(secret);
-		System.out.println("encrypted tlv = " + DatatypeConverter.printHexBinary(encryptedTlv));
 
 		byte[] decryptedTlv = MiniTLV.getCipher().add(encryptedTlv).decrypt(secret);
-		System.out.println("tlv = " + DatatypeConverter.printHexBinary(decryptedTlv));
 
 		String result = new String(MiniTLV.getReader().read(decryptedTlv).parse((byte)0x01), StandardCharsets.UTF_8);
-		System.out.println("decoded tlv = " + result);
 
 		Assert.assertNotNull(result);
 		Assert.assertEquals(value, result);
 	}
 
+	@Test
+	public void encDec10() throws IOException {
+		byte[] large = RandomStringUtils.random(70_000).getBytes(StandardCharsets.UTF_8);
+
+		byte[] tlv = MiniTLV.getWriter().write(large, (byte)0x01).serialize();
+		byte[] result = MiniTLV.getReader().read(tlv).parse((byte)0x01);
+
+		Assert.assertNotNull(result);
+		Assert.assertArrayEquals(large, result);
+	}
+
+	@Test
+	public void encDec11() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_MAX);
+		int size = MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, (byte)0x01).serializeTo(buffer);
+		buffer.flip();
+		byte[] tlv = new byte[buffer.limit()];
+		buffer.get(tlv, 0, buffer.limit());
+
+		Assert.assertEquals(tlv.length, size);
+		Assert.assertEquals(size, MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, (byte)0x01).encodedSize());
+		String result = new String(MiniTLV.getReader().read(tlv).parse((byte)0x01), StandardCharsets.UTF_8);
+		Assert.assertEquals(value, result);
+	}
+
+	@Test(expected = BufferOverflowException.class)
+	public void encDec12() {
+		MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, (byte)0x01).serializeTo(ByteBuffer.allocate(MiniTLV.TLV_MINSIZE));
+	}
+
+	@Test
+	public void encDec13() throws IOException {
+		byte[] tlv = MiniTLV.getWriter()
+				.write(value, StandardCharsets.UTF_8, (byte)0x01)
+				.write(RandomStringUtils.random(70_000), StandardCharsets.UTF_8, (byte)0x01, (byte)0x01)
+				.serialize();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(tlv.length);
+		buffer.put(tlv);
+		buffer.flip();
+
+		ByteBuffer slice = MiniTLV.getView(buffer).slice((byte)0x01);
+		Assert.assertNotNull(slice);
+		Assert.assertTrue(slice.isReadOnly());
+		Assert.assertEquals(value, StandardCharsets.UTF_8.decode(slice).toString());
+		Assert.assertNull(MiniTLV.getView(buffer).slice((byte)0x02));
+		Assert.assertEquals(0, buffer.position());
+	}
+
+	@Test
+	public void encDec14() throws IOException {
+		Serializer writer = MiniTLV.getWriter();
+		for (int i = 1; i <= 40; i++) {
+			writer.write(value + i, StandardCharsets.UTF_8, (short) (i << 8));
+		}
+		Parser reader = MiniTLV.getReader().read(writer.serialize()).index();
+
+		for (int i = 1; i <= 40; i++) {
+			Assert.assertEquals(value + i, new String(reader.parse((short) (i << 8)), StandardCharsets.UTF_8));
+		}
+		Assert.assertNull(reader.parse((byte)0x01));
+	}
+
+	@Test
+	public void encDec15() throws IOException {
+		byte[] tlv = MiniTLV.getWriter()
+				.write(value, StandardCharsets.UTF_8, (byte)0x01)
+				.write(value, StandardCharsets.UTF_8, (byte)0x01, (byte)0x01)
+				.serialize();
+
+		Map<Integer, byte[]> expected = MiniTLV.getReader().read(tlv).parse();
+		RecordMap records = MiniTLV.getReader().read(tlv).parseRecords();
+		Assert.assertEquals(expected.size(), records.size());
+		records.forEach((type, val) -> Assert.assertArrayEquals(expected.get(type), val));
+
+		RecordMap view = MiniTLV.getView(ByteBuffer.wrap(tlv)).parseRecords();
+		Assert.assertSame(view.get(0x0101), view.get(0x0101));
+		Assert.assertEquals(value, StandardCharsets.UTF_8.decode(view.slice(0x01)).toString());
+		Assert.assertFalse(view.containsKey(0x02));
+	}
+
+	@Test
+	public void encDec16() throws IOException {
+		byte[] large = RandomStringUtils.random(70_000).getBytes(StandardCharsets.UTF_8);
+		byte[] tlv = MiniTLV.getWriter()
+				.write(value, StandardCharsets.UTF_8, (byte)0x01, (byte)0x01)
+				.write(large, (byte)0x02)
+				.serialize();
+
+		/*
+		 * Deliver a few bytes per read to split records
+		 */
+		InputStream stream = new ByteArrayInputStream(tlv) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				return super.read(b, off, Math.min(len, 7));
+			}
+		};
+
+		int count = 0;
+		try (StreamReader reader = MiniTLV.getStreamReader(stream, 16)) {
+			while (reader.next()) {
+				count++;
+				if (reader.getType() == 0x0101) {
+					Assert.assertEquals(value, new String(reader.getValue(), StandardCharsets.UTF_8));
+				} else {
+					Assert.assertEquals(large.length, reader.getLength());
+				}
+			}
+		}
+		Assert.assertEquals(2, count);
+	}
+
+	@Test
+	public void encDec17() throws IOException {
+		byte[] large = RandomStringUtils.random(70_000).getBytes(StandardCharsets.UTF_8);
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try (StreamWriter writer = MiniTLV.getStreamWriter(stream, 64)) {
+			writer.write(value, StandardCharsets.UTF_8, (byte)0x01)
+					.write(new ByteArrayInputStream(large), large.length, (byte)0x02)
+					.write(large, (short) 0x0303);
+		}
+
+		Parser reader = MiniTLV.getReader().read(stream.toByteArray()).index();
+		Assert.assertEquals(value, new String(reader.parse((byte)0x01), StandardCharsets.UTF_8));
+		Assert.assertArrayEquals(large, reader.parse((byte)0x02));
+		Assert.assertArrayEquals(large, reader.parse((short) 0x0303));
+	}
+
+	@Test
+	public void encDec18() throws IOException {
+		Path file = Files.createTempFile("minitlv", ".tlv");
+		try {
+			Files.write(file, MiniTLV.getWriter()
+					.write(value, StandardCharsets.UTF_8, (byte)0x01)
+					.write(value, StandardCharsets.UTF_8, (byte)0x01, (byte)0x01)
+					.serialize());
+
+			try (MappedFile mapped = MiniTLV.getMappedFile(file)) {
+				Assert.assertEquals(2, mapped.size());
+				Assert.assertEquals(value, StandardCharsets.UTF_8.decode(mapped.slice((short) 0x0101)).toString());
+				mapped.forEach((type, val) -> Assert.assertEquals(value, StandardCharsets.UTF_8.decode(val).toString()));
+				Assert.assertNull(mapped.slice((byte)0x02));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void encDec19() throws IOException {
+		Path directory = Files.createTempDirectory("minitlv");
+		try {
+			try (Journal journal = MiniTLV.getJournal(directory, BUFFER_MAX, 10)) {
+				for (int i = 0; i < 100; i++) {
+					journal.append((value + i).getBytes(StandardCharsets.UTF_8), (byte) (i % 2 + 1));
+				}
+			}
+
+			try (Journal journal = MiniTLV.getJournal(directory, BUFFER_MAX, 10)) {
+				Assert.assertEquals(100, journal.size());
+				Assert.assertEquals(value + 99, new String(journal.read((byte)0x02), StandardCharsets.UTF_8));
+				List<byte[]> values = journal.readAll((byte)0x01);
+				Assert.assertEquals(50, values.size());
+				Assert.assertEquals(value + 0, new String(values.get(0), StandardCharsets.UTF_8));
+			}
+		} finally {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	public void encDec20() throws IOException {
+		byte[] tlv = MiniTLV.pooledWriter().write(value, StandardCharsets.UTF_8, (byte)0x01).serialize();
+		Serializer writer = MiniTLV.pooledWriter();
+		Assert.assertSame(writer, MiniTLV.pooledWriter());
+		Assert.assertArrayEquals(tlv, writer.write(value, StandardCharsets.UTF_8, (byte)0x01).serialize());
+
+		Parser reader = MiniTLV.pooledReader().read(tlv);
+		Assert.assertEquals(value, new String(reader.parse((byte)0x01), StandardCharsets.UTF_8));
+		Assert.assertNull(reader.reset().read(writer.reset().write(value, StandardCharsets.UTF_8, (byte)0x02).serialize()).parse((byte)0x01));
+	}
+
+	@Test
+	public void encDec21() throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		byte[] tlv = MiniTLV.getWriter()
+				.write(bytes, (byte)0x02)
+				.write(bytes, (byte)0x01)
+				.write(new byte[] {0x01}, (byte)0x02)
+				.serialize();
+
+		Assert.assertArrayEquals(tlv, MiniTLV.getWriter()
+				.write(bytes, (byte)0x02)
+				.write(bytes, (byte)0x01)
+				.write(new byte[] {0x01}, (byte)0x02)
+				.serialize());
+
+		List<Integer> types = new ArrayList<>();
+		try (StreamReader reader = MiniTLV.getStreamReader(new ByteArrayInputStream(tlv), BUFFER_MAX)) {
+			while (reader.next()) {
+				types.add(reader.getType());
+			}
+		}
+		Assert.assertEquals(Arrays.asList(0x02, 0x01, 0x02), types);
+		Assert.assertArrayEquals(bytes, MiniTLV.getReader().read(tlv).parse((byte)0x01));
+	}
+
+	@Test
+	public void encDec22() throws IOException {
+		Converter converter = MiniTLV.getWriter().getConverter();
+		byte[] bytes = new byte[8];
+		converter.writeInt(bytes, 1, 0xcafe, 2);
+		converter.writeInt(bytes, 3, 0x89abcdef, 4);
+		Assert.assertEquals(0xcafe, converter.readInt(bytes, 1, 2));
+		Assert.assertEquals(0x89abcdef, converter.readInt(bytes, 3, 4));
+		Assert.assertArrayEquals(converter.convertToBytes(0x89abcdef), Arrays.copyOfRange(bytes, 3, 7));
+
+		byte[] tlv = MiniTLV.getWriter()
+				.write((short)0x0102, (byte)0x01)
+				.write(0x01020304, (byte)0x02)
+				.serialize();
+		Parser reader = MiniTLV.getReader().read(tlv);
+		Assert.assertEquals(0x0102, converter.convertToInt(reader.parse((byte)0x01)));
+		Assert.assertEquals(0x01020304, converter.convertToInt(reader.parse((byte)0x02)));
+	}
+
+	@Test
+	public void encDec23() throws IOException {
+		List<ByteBuffer> messages = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			messages.add(ByteBuffer.wrap(MiniTLV.getWriter()
+					.write(value + i, StandardCharsets.UTF_8, (byte)0x01)
+					.write(i, (short)0x0102)
+					.serialize()));
+		}
+
+		List<RecordMap> maps = MiniTLV.parseAll(messages);
+		Assert.assertEquals(messages.size(), maps.size());
+		for (int i = 0; i < maps.size(); i++) {
+			Assert.assertEquals(value + i, new String(maps.get(i).get(0x01), StandardCharsets.UTF_8));
+			Assert.assertEquals(i, maps.get(i).slice(0x0102).getInt());
+		}
+
+		String[] values = new String[messages.size()];
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			MiniTLV.parseEach(messages, (i, map) -> values[i] = new String(map.get(0x01), StandardCharsets.UTF_8), executor);
+		} finally {
+			executor.shutdown();
+		}
+		for (int i = 0; i < values.length; i++) {
+			Assert.assertEquals(value + i, values[i]);
+		}
+	}
+
+	@Test
+	public void encDec24() throws IOException {
+		Path file = Files.createTempFile("minitlv", ".tlv");
+		try {
+			Serializer writer = MiniTLV.getWriter();
+			for (int i = 0; i < 1000; i++) {
+				writer.write(i, (short)(0x0100 + i));
+			}
+			Files.write(file, writer.serialize());
+
+			LongAdder sum = new LongAdder();
+			try (MappedFile mapped = MiniTLV.getMappedFile(file)) {
+				mapped.forEachParallel((type, val) -> {
+					Assert.assertEquals(type - 0x0100, val.getInt());
+					sum.add(type - 0x0100);
+				});
+			}
+			Assert.assertEquals(999 * 1000 / 2, sum.sum());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void encDec25() throws IOException, DataFormatException {
+		Serializer writer = MiniTLV.getWriter();
+		for (int i = 0; i < 1000; i++) {
+			writer.write(value, StandardCharsets.UTF_8, (short)(0x0100 + i));
+		}
+		byte[] tlv = writer.serialize();
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		MiniTLV.getCompacter().deflate(new ByteArrayInputStream(tlv), compressed, 512);
+		Assert.assertArrayEquals(tlv, MiniTLV.getCompacter().add(compressed.toByteArray()).inflate(512));
+
+		ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+		byte[] deflated = MiniTLV.getCompacter().add(tlv).deflate(512);
+		Assert.assertEquals(tlv.length, MiniTLV.getCompacter().inflate(new ByteArrayInputStream(deflated), decompressed, 512));
+		Assert.assertArrayEquals(tlv, decompressed.toByteArray());
+
+		try {
+			MiniTLV.getCompacter().add(Arrays.copyOf(deflated, deflated.length / 2)).inflate(512);
+			Assert.fail();
+		} catch (DataFormatException e) {
+			// truncated
+		}
+	}
+
+	@Test
+	public void encDec26() throws IOException, DataFormatException {
+		Serializer writer = MiniTLV.getWriter();
+		for (int i = 0; i < 100; i++) {
+			writer.write(value, StandardCharsets.UTF_8, (short)(0x0100 + i));
+		}
+		writer.write(RandomUtils.nextBytes(1000), (byte)0x01);
+		byte[] tlv = writer.serialize();
+
+		for (StandardCodec codec : StandardCodec.values()) {
+			byte[] compressed = MiniTLV.getCompacter().add(tlv).compress(codec);
+			Assert.assertEquals(codec.getId(), compressed[0]);
+			Assert.assertArrayEquals(tlv, MiniTLV.getCompacter().add(compressed).decompress());
+			Assert.assertArrayEquals(new byte[0], MiniTLV.getCompacter().add(MiniTLV.getCompacter().compress(codec)).decompress());
+		}
+		Assert.assertTrue(MiniTLV.getCompacter().add(tlv).compress(StandardCodec.LZ4).length < tlv.length / 2);
+
+		try {
+			MiniTLV.getCompacter().add(new byte[] {(byte)0xff, 0x00}).decompress();
+			Assert.fail();
+		} catch (DataFormatException e) {
+			// unknown codec
+		}
+	}
+
+	@Test
+	public void encDec27() throws IOException, DataFormatException {
+		List<byte[]> samples = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			samples.add(MiniTLV.getWriter()
+					.write("{\"status\":\"delivered\",\"carrier\":\"express\",\"id\":" + i + "}", StandardCharsets.UTF_8, (byte)0x01)
+					.write("Europe/Paris", StandardCharsets.UTF_8, (byte)0x02)
+					.serialize());
+		}
+		byte[] dictionary = MiniTLV.trainDictionary(samples, 1024);
+		Assert.assertTrue(dictionary.length > 0 && dictionary.length <= 1024);
+
+		byte[] message = MiniTLV.getWriter()
+				.write("{\"status\":\"delivered\",\"carrier\":\"express\",\"id\":1000}", StandardCharsets.UTF_8, (byte)0x01)
+				.write("Europe/Paris", StandardCharsets.UTF_8, (byte)0x02)
+				.serialize();
+		byte[] compressed = MiniTLV.getCompacter().add(message).compress(dictionary);
+		Assert.assertTrue(compressed.length < MiniTLV.getCompacter().add(message).compress(StandardCodec.DEFLATE).length);
+
+		try {
+			MiniTLV.getCompacter().add(compressed).decompress();
+			Assert.fail();
+		} catch (DataFormatException e) {
+			// not registered yet
+		}
+		MiniTLV.registerDictionary(dictionary);
+		Assert.assertArrayEquals(message, MiniTLV.getCompacter().add(compressed).decompress());
+	}
+
+	@Test
+	public void encDec28() throws IOException {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			body.append(value);
+		}
+		byte[] large = body.toString().getBytes(StandardCharsets.UTF_8);
+		byte[] small = value.getBytes(StandardCharsets.UTF_8);
+
+		byte[] tlv = MiniTLV.getWriter()
+				.compress(StandardCodec.LZ4, 1024)
+				.write(small, (byte)0x01)
+				.write(large, (short)0x0102)
+				.serialize();
+		Assert.assertTrue(tlv.length < large.length);
+
+		Assert.assertArrayEquals(large, MiniTLV.getReader().read(tlv).parse((short)0x0102));
+		Assert.assertArrayEquals(large, MiniTLV.getReader().read(tlv).index().parse((short)0x0102));
+		Assert.assertArrayEquals(small, MiniTLV.getReader().read(tlv).parse().get(0x01));
+		Assert.assertArrayEquals(large, MiniTLV.getReader().read(tlv).parse().get(0x0102));
+
+		RecordMap records = MiniTLV.getView(ByteBuffer.wrap(tlv)).parseRecords();
+		Assert.assertEquals(2, records.size());
+		Assert.assertArrayEquals(large, records.get(0x0102));
+		Assert.assertEquals(ByteBuffer.wrap(large), records.slice(0x0102));
+		Assert.assertEquals(ByteBuffer.wrap(large), MiniTLV.getView(ByteBuffer.wrap(tlv)).slice((short)0x0102));
+
+		Assert.assertEquals(MiniTLV.getWriter().write(large, (short)0x0102).encodedSize(), MiniTLV.pooledWriter().compress(StandardCodec.LZ4, 1024).reset()
+				.write(large, (short)0x0102).encodedSize());
+	}
+
+	@Test
+	public void encDec29() throws IOException, DataFormatException {
+		byte[] random = RandomUtils.nextBytes(100_000);
+		byte[] stored = MiniTLV.getCompacter().add(random).compressAdaptive(StandardCodec.DEFLATE, 0.1);
+		Assert.assertEquals(StandardCodec.STORED.getId(), stored[0]);
+		Assert.assertArrayEquals(random, MiniTLV.getCompacter().add(stored).decompress());
+
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			body.append(value);
+		}
+		byte[] text = body.toString().getBytes(StandardCharsets.UTF_8);
+		byte[] deflated = MiniTLV.getCompacter().add(text).compressAdaptive(StandardCodec.DEFLATE, 0.1);
+		Assert.assertEquals(StandardCodec.DEFLATE.getId(), deflated[0]);
+		Assert.assertArrayEquals(text, MiniTLV.getCompacter().add(deflated).decompress());
+
+		Assert.assertEquals(Level.BEST_COMPRESSION, Level.forSize(1024));
+		Assert.assertEquals(Level.BEST_SPEED, Level.forSize(1L << 30));
+
+		byte[] tlv = MiniTLV.getWriter().compress(StandardCodec.DEFLATE, 1024).write(random, (byte)0x01).serialize();
+		Assert.assertEquals(MiniTLV.getWriter().write(random, (byte)0x01).encodedSize(), tlv.length);
+	}
+
+	@Test
+	public void encDec30() throws IOException, GeneralSecurityException {
+		String secret = RandomStringUtils.random(20);
+		byte[] tlv = MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, (byte)0x01).serialize();
+
+		Session session = MiniTLV.getSession(Algorithm.AES256, secret);
+		byte[] first = session.encrypt(tlv);
+		byte[] second = session.encrypt(tlv);
+		Assert.assertFalse(Arrays.equals(first, second));
+		Assert.assertArrayEquals(tlv, session.decrypt(first));
+		Assert.assertArrayEquals(tlv, MiniTLV.getSession(Algorithm.AES256, secret).decrypt(second));
+
+		second[second.length - 1] ^= 0x01;
+		try {
+			session.decrypt(second);
+			Assert.fail();
+		} catch (GeneralSecurityException e) {
+			// altered
+		}
+		try {
+			MiniTLV.getSession(Algorithm.AES256, secret + "x").decrypt(first);
+			Assert.fail();
+		} catch (GeneralSecurityException e) {
+			// other secret
+		}
+
+		byte[] encrypted = MiniTLV.getCipher().add(tlv).encrypt(secret);
+		Assert.assertArrayEquals(tlv, MiniTLV.getCipher().add(encrypted).decrypt(secret));
+		MiniTLV.clearKeys();
+		Assert.assertArrayEquals(tlv, MiniTLV.getCipher().add(encrypted).decrypt(secret));
+	}
+
+	@Test
+	public void encDec31() throws IOException, GeneralSecurityException {
+		String secret = RandomStringUtils.random(20);
+		byte[] data = RandomUtils.nextBytes(10000);
+		Crypto crypto = MiniTLV.getCipher(Algorithm.AES256);
+
+		ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+		Assert.assertEquals(data.length, crypto.encrypt(new ByteArrayInputStream(data), encrypted, secret, 1000));
+		ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+		Assert.assertEquals(data.length, crypto.decrypt(new ByteArrayInputStream(encrypted.toByteArray()), decrypted, secret));
+		Assert.assertArrayEquals(data, decrypted.toByteArray());
+
+		ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+		try (OutputStream output = crypto.encryptStream(streamed, secret, 333)) {
+			output.write(data, 0, 5000);
+			output.write(data, 5000, data.length - 5000);
+		}
+		decrypted.reset();
+		Assert.assertEquals(data.length, crypto.decrypt(new ByteArrayInputStream(streamed.toByteArray()), decrypted, secret));
+		Assert.assertArrayEquals(data, decrypted.toByteArray());
+
+		byte[] tampered = encrypted.toByteArray();
+		tampered[tampered.length / 2] ^= 0x01;
+		try {
+			crypto.decrypt(new ByteArrayInputStream(tampered), new ByteArrayOutputStream(), secret);
+			Assert.fail();
+		} catch (StreamCorruptedException e) {
+			// altered chunk
+		}
+		byte[] truncated = Arrays.copyOf(encrypted.toByteArray(), encrypted.size() - 1021);
+		try {
+			crypto.decrypt(new ByteArrayInputStream(truncated), new ByteArrayOutputStream(), secret);
+			Assert.fail();
+		} catch (StreamCorruptedException e) {
+			// missing last chunk
+		}
+
+		ByteArrayOutputStream empty = new ByteArrayOutputStream();
+		crypto.encryptStream(empty, secret, 16).close();
+		Assert.assertEquals(-1, crypto.decryptStream(new ByteArrayInputStream(empty.toByteArray()), secret).read());
+
+		ByteBuffer forged = ByteBuffer.allocate(1 + 17 + 7 + Integer.BYTES + 1 + Integer.BYTES + 32);
+		forged.put((byte) 17).position(1 + 17 + 7);
+		forged.putInt(16).put((byte) 1).putInt(32);
+		try {
+			crypto.decrypt(new ByteArrayInputStream(forged.array()), new ByteArrayOutputStream(), secret);
+			Assert.fail();
+		} catch (StreamCorruptedException e) {
+			// key length of no algorithm
+		}
+	}
+
+	@Test
+	public void encDec32() throws Exception {
+		String secret = RandomStringUtils.random(20);
+		CryptoEngine engine = MiniTLV.getCryptoEngine(Algorithm.AES192);
+		Assert.assertSame(engine, MiniTLV.getCryptoEngine(Algorithm.AES192));
+
+		byte[] tlv = MiniTLV.getWriter().write(value, StandardCharsets.UTF_8, (byte)0x01).serialize();
+		byte[] encrypted = engine.encrypt(tlv, secret);
+		Assert.assertArrayEquals(tlv, MiniTLV.getCipher(Algorithm.AES192).add(encrypted).decrypt(secret));
+		Assert.assertArrayEquals(tlv, engine.decrypt(MiniTLV.getCipher(Algorithm.AES192).add(tlv).encrypt(secret), secret));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<byte[]>> results = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				byte[] message = RandomUtils.nextBytes(i * 37);
+				results.add(executor.submit(() -> {
+					Assert.assertArrayEquals(message, engine.decrypt(engine.encrypt(message, secret), secret));
+					return message;
+				}));
+			}
+			for (Future<byte[]> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void encDec33() throws IOException, GeneralSecurityException {
+		String secret = RandomStringUtils.random(20);
+		Session session = MiniTLV.getSession(secret);
+		byte[] body = value.getBytes(StandardCharsets.UTF_8);
+		byte[] tlv = MiniTLV.getWriter()
+				.write("route", StandardCharsets.UTF_8, (byte)0x01)
+				.encrypt(session)
+				.write(body, (byte)0x02)
+				.write(42, (short)0x0300)
+				.encrypt(null)
+				.write("tail", StandardCharsets.UTF_8, (byte)0x04)
+				.serialize();
+
+		Parser router = MiniTLV.getReader().read(tlv);
+		Assert.assertEquals("route", new String(router.parse((byte)0x01), StandardCharsets.UTF_8));
+		Assert.assertNull(router.parse((byte)0x02));
+		Assert.assertEquals(2, router.parse().size());
+		Assert.assertNull(router.parseRecords().get(0x02));
+		Assert.assertEquals("tail", new String(router.parseRecords().get(0x04), StandardCharsets.UTF_8));
+
+		Parser consumer = MiniTLV.getReader().decrypt(MiniTLV.getSession(secret)).read(tlv);
+		Assert.assertArrayEquals(body, consumer.parse((byte)0x02));
+		Assert.assertEquals(4, consumer.parse().size());
+		RecordMap records = consumer.index().parseRecords();
+		Assert.assertArrayEquals(body, records.get(0x02));
+		Assert.assertArrayEquals(body, consumer.parse((byte)0x02));
+		Assert.assertEquals(42, ByteBuffer.wrap(records.get(0x0300)).getInt());
+
+		byte[] moved = MiniTLV.getWriter().encrypt(session).write("secret", StandardCharsets.UTF_8, (byte)0x02).serialize();
+		Assert.assertEquals(0x02, moved[7]);
+		moved[7] = 0x05;
+		try {
+			MiniTLV.getReader().decrypt(session).read(moved).parse((byte)0x05);
+			Assert.fail();
+		} catch (StreamCorruptedException e) {
+			// moved to another type
+		}
+	}
+
+	@Test
+	public void encDec34() throws IOException, DataFormatException {
+		String secret = RandomStringUtils.random(20);
+		byte[] large = RandomUtils.nextBytes(100000);
+		Serializer writer = MiniTLV.getWriter()
+				.write(value, StandardCharsets.UTF_8, (byte)0x01)
+				.write(large, (short)0x0200)
+				.write(7, (byte)0x03);
+		byte[] tlv = writer.serialize();
+
+		Pipeline plain = MiniTLV.pipeline();
+		Assert.assertArrayEquals(tlv, plain.write(writer));
+		Pipeline zip = MiniTLV.pipeline().compress(Level.BEST_SPEED);
+		Assert.assertArrayEquals(tlv, MiniTLV.getCompacter().add(zip.write(writer)).inflate(1024));
+
+		Pipeline full = MiniTLV.pipeline().compress(Level.BALANCED).encrypt(Algorithm.AES256, secret);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Assert.assertEquals(tlv.length, full.write(writer, output));
+		byte[] stored = output.toByteArray();
+		Parser parser = full.read(stored, MiniTLV.getReader());
+		Assert.assertEquals(value, new String(parser.parse((byte)0x01), StandardCharsets.UTF_8));
+		Assert.assertEquals(7, parser.parseRecords().get(0x03)[3]);
+
+		Pipeline crypto = MiniTLV.pipeline().encrypt(Algorithm.AES128, secret);
+		Assert.assertArrayEquals(large, crypto.read(crypto.write(writer), MiniTLV.getReader()).parse((byte)0x02, (byte)0x00));
+
+		byte[] tampered = stored.clone();
+		tampered[tampered.length - 1] ^= 0x01;
+		try {
+			full.read(tampered, MiniTLV.getReader());
+			Assert.fail();
+		} catch (StreamCorruptedException e) {
+			// altered last chunk
+		}
+		try {
+			full.read(Arrays.copyOf(stored, stored.length - 1), MiniTLV.getReader());
+			Assert.fail();
+		} catch (IOException e) {
+			// truncated
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void encDec35() throws IOException {
+		PipedOutputStream output = new PipedOutputStream();
+		PipedInputStream input = new PipedInputStream(output);
+
+		/*
+		 * Last record shorter than the largest header, the stream staying open
+		 */
+		output.write(MiniTLV.getWriter().write("abc", StandardCharsets.UTF_8, (byte)0x01).serialize());
+		output.flush();
+
+		try (StreamReader reader = MiniTLV.getStreamReader(input, 16)) {
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(0x01, reader.getType());
+			Assert.assertEquals("abc", new String(reader.getValue(), StandardCharsets.UTF_8));
+
+			output.write(MiniTLV.getWriter().write("de", StandardCharsets.UTF_8, (short)0x0102).serialize());
+			output.close();
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(0x0102, reader.getType());
+			Assert.assertEquals("de", new String(reader.getValue(), StandardCharsets.UTF_8));
+			Assert.assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void encDec36() throws IOException {
+		Path directory = Files.createTempDirectory("minitlv");
+		try {
+			try (Journal journal = MiniTLV.getJournal(directory, 64, 1)) {
+				for (int i = 0; i < 20; i++) {
+					journal.append(("record" + i).getBytes(StandardCharsets.UTF_8), (byte)0x01);
+				}
+				List<byte[]> values = journal.readAll((byte)0x01);
+				Assert.assertEquals(20, values.size());
+				Assert.assertEquals("record3", new String(values.get(3), StandardCharsets.UTF_8));
+				try {
+					journal.append(new byte[64], (byte)0x02);
+					Assert.fail();
+				} catch (IllegalArgumentException e) {
+					// larger than a segment
+				}
+			}
+
+			Files.delete(directory.resolve(String.format("%010d.tlv", 1)));
+			try {
+				MiniTLV.getJournal(directory, 64, 1).close();
+				Assert.fail();
+			} catch (NoSuchFileException e) {
+				// missing segment
+			}
+			Assert.assertFalse(Files.exists(directory.resolve(String.format("%010d.tlv", 1))));
+
+			Files.createFile(directory.resolve("notes.tlv"));
+			try {
+				MiniTLV.getJournal(directory, 64, 1).close();
+				Assert.fail();
+			} catch (FileSystemException e) {
+				Assert.assertEquals(directory.resolve("notes.tlv").toString(), e.getFile());
+			}
+		} finally {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	public void encDec37() throws IOException, DataFormatException {
+		try {
+			MiniTLV.getCompacter().add(new byte[] {StandardCodec.LZ4.getId(), 0x7f, (byte)0xff, (byte)0xff, (byte)0xff, 0x00}).decompress();
+			Assert.fail();
+		} catch (DataFormatException e) {
+			// declared size beyond the input expansion
+		}
+
+		byte[] zeros = new byte[1 << 20];
+		byte[] compressed = MiniTLV.getCompacter().add(zeros).compress(StandardCodec.LZ4);
+		Assert.assertArrayEquals(zeros, MiniTLV.getCompacter().add(compressed).decompress());
+
+		byte[] tlv = MiniTLV.getWriter().write(value + value, StandardCharsets.UTF_8, (byte)0x01).serialize();
+		compressed = MiniTLV.getCompacter().add(tlv).compress(StandardCodec.LZ4);
+		for (int length = 1; length < compressed.length; length++) {
+			try {
+				MiniTLV.getCompacter().add(Arrays.copyOf(compressed, length)).decompress();
+				Assert.fail();
+			} catch (DataFormatException e) {
+				// truncated
+			}
+		}
+	}
+
+	@Test
+	public void encDec38() {
+		byte[] dictionary = {0x01, 0x00, 0x01};
+		int id = MiniTLV.registerDictionary(dictionary);
+		Assert.assertEquals(id, MiniTLV.registerDictionary(dictionary.clone()));
+		try {
+			MiniTLV.registerDictionary(new byte[] {0x00, 0x02, 0x00});
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// same Adler-32 identifier
+		}
+	}
+
+	@Test
+	public void encDec39() throws GeneralSecurityException {
+		String secret = RandomStringUtils.random(20);
+		byte[] data = RandomUtils.nextBytes(100);
+		Session strict = MiniTLV.getSession(Algorithm.AES128, secret, false);
+		Assert.assertArrayEquals(data, strict.decrypt(strict.encrypt(data)));
+		byte[] other = MiniTLV.getSession(Algorithm.AES128, secret).encrypt(data);
+		try {
+			strict.decrypt(other);
+			Assert.fail();
+		} catch (GeneralSecurityException e) {
+			// salt of another session
+		}
+	}
+
+	@Test
+	public void encDec40() throws IOException, GeneralSecurityException {
+		Session session = MiniTLV.getSession(RandomStringUtils.random(20));
+		byte[] tlv = MiniTLV.getWriter()
+				.write("clear", StandardCharsets.UTF_8, (byte)0x01)
+				.encrypt(session)
+				.write("secret", StandardCharsets.UTF_8, (byte)0x02)
+				.encrypt(null)
+				.write("duplicate", StandardCharsets.UTF_8, (byte)0x02)
+				.serialize();
+
+		Parser router = MiniTLV.getReader().read(tlv);
+		Assert.assertNull(router.parse((byte)0x02));
+		Assert.assertFalse(router.parse().containsKey(0x02));
+		RecordMap records = router.index().parseRecords();
+		Assert.assertNull(router.parse((byte)0x02));
+		Assert.assertFalse(records.containsKey(0x02));
+		Assert.assertNull(records.get(0x02));
+		Assert.assertNull(records.slice(0x02));
+		Assert.assertEquals(1, records.size());
+		LongAdder count = new LongAdder();
+		records.forEach((type, value) -> count.increment());
+		Assert.assertEquals(1, count.intValue());
+
+		Assert.assertNull(MiniTLV.getView(ByteBuffer.wrap(tlv)).slice((byte)0x02));
+		Assert.assertFalse(MiniTLV.getView(ByteBuffer.wrap(tlv)).parseRecords().containsKey(0x02));
+
+		Parser consumer = MiniTLV.getReader().decrypt(session).read(tlv);
+		Assert.assertEquals("secret", new String(consumer.parse((byte)0x02), StandardCharsets.UTF_8));
+		Assert.assertEquals("secret", new String(consumer.parse().get(0x02), StandardCharsets.UTF_8));
+		records = consumer.index().parseRecords();
+		Assert.assertEquals("secret", new String(consumer.parse((byte)0x02), StandardCharsets.UTF_8));
+		Assert.assertEquals("secret", new String(records.get(0x02), StandardCharsets.UTF_8));
+		Assert.assertEquals(2, records.size());
+	}
+
+	@Test
+	public void encDec41() throws IOException {
+		Serializer writer = MiniTLV.getWriter();
+		Serializer legacy = new Serializer() {
+			@Override
+			public Converter getConverter() {
+				return writer.getConverter();
+			}
+			@Override
+			public Serializer write(byte[] value, byte... type) {
+				writer.write(value, type);
+				return this;
+			}
+			@Override
+			public byte[] serialize() throws IOException {
+				return writer.serialize();
+			}
+		};
+		byte[] tlv = legacy.write(value, StandardCharsets.UTF_8, type).serialize();
+
+		Assert.assertEquals(tlv.length, legacy.encodedSize());
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_MAX);
+		Assert.assertEquals(tlv.length, legacy.serializeTo(buffer));
+		Assert.assertArrayEquals(tlv, Arrays.copyOf(buffer.array(), buffer.position()));
+		try {
+			legacy.reset();
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+			// not implemented
+		}
+
+		Parser parser = MiniTLV.getReader();
+		Parser legacyParser = new Parser() {
+			@Override
+			public Converter getConverter() {
+				return parser.getConverter();
+			}
+			@Override
+			public Parser read(byte[] tlv) throws IOException {
+				parser.read(tlv);
+				return this;
+			}
+			@Override
+			public byte[] parse(byte... type) throws IOException {
+				return parser.parse(type);
+			}
+			@Override
+			public Map<Integer, byte[]> parse() throws IOException {
+				return parser.parse();
+			}
+		};
+		Assert.assertEquals(value, new String(legacyParser.read(tlv).index().parse(type), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void encDec42() throws IOException {
+		byte[] large = RandomUtils.nextBytes(5000);
+		byte[] tlv = MiniTLV.getWriter().write(large, (byte)0x01).serialize();
+		try (StreamReader reader = MiniTLV.getStreamReader(new ByteArrayInputStream(tlv), 16)) {
+			Assert.assertTrue(reader.next());
+			Assert.assertArrayEquals(large, reader.getValue());
+			Assert.assertFalse(reader.next());
+		}
+
+		/*
+		 * Largest length followed by a few bytes only
+		 */
+		byte[] truncated = {0x01, 0x00, 0x00, 0x7f, (byte)0xff, (byte)0xff, (byte)0xff, 0x05, 0x05, 0x05};
+		try (StreamReader reader = MiniTLV.getStreamReader(new ByteArrayInputStream(truncated), 16)) {
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(Integer.MAX_VALUE, reader.getLength());
+			reader.getValue();
+			Assert.fail();
+		} catch (EOFException e) {
+			// truncated
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void encDec43() throws IOException {
+
+		/*
+		 * Negative length, then a length beyond the bytes left
+		 */
+		byte[] negative = {0x01, 0x00, 0x00, (byte)0xff, (byte)0xff, (byte)0xff, (byte)0xf9, 0x05, 0x05, 0x05};
+		byte[] overflow = {0x01, 0x00, 0x00, 0x7f, (byte)0xff, (byte)0xff, (byte)0xff, 0x05, 0x05, 0x05};
+		for (byte[] tlv : Arrays.asList(negative, overflow)) {
+			Assert.assertNull(MiniTLV.getReader().read(tlv).parse((byte)0x02));
+			Assert.assertNull(MiniTLV.getReader().read(tlv).parse((byte)0x05));
+			Assert.assertTrue(MiniTLV.getReader().read(tlv).parse().isEmpty());
+			Assert.assertNull(MiniTLV.getReader().read(tlv).index().parse((byte)0x05));
+		}
+	}
+
+	@Test
+	public void encDec44() throws IOException {
+		List<byte[]> reserved = Arrays.asList(
+				new byte[] {(byte)0xff, (byte)0xff, (byte)0xff, (byte)0xff},
+				new byte[] {(byte)0xff, (byte)0xff, (byte)0xff, (byte)0xfe});
+		Path directory = Files.createTempDirectory("minitlv");
+		try (Journal journal = MiniTLV.getJournal(directory, BUFFER_MAX, 1);
+				StreamWriter writer = MiniTLV.getStreamWriter(new ByteArrayOutputStream(), BUFFER_MAX)) {
+			for (byte[] type : reserved) {
+				try {
+					MiniTLV.getWriter().write("hello world", StandardCharsets.UTF_8, type);
+					Assert.fail();
+				} catch (IllegalArgumentException e) {
+					// reserved type
+				}
+				try {
+					MiniTLV.getWriter().write(1, type);
+					Assert.fail();
+				} catch (IllegalArgumentException e) {
+					// reserved type
+				}
+				try {
+					writer.write("hello world".getBytes(StandardCharsets.UTF_8), type);
+					Assert.fail();
+				} catch (IllegalArgumentException e) {
+					// reserved type
+				}
+				try {
+					journal.append("hello world".getBytes(StandardCharsets.UTF_8), type);
+					Assert.fail();
+				} catch (IllegalArgumentException e) {
+					// reserved type
+				}
+			}
+		} finally {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		}
+	}
+
 }